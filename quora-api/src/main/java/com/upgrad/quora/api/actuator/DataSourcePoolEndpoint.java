@@ -0,0 +1,68 @@
+package com.upgrad.quora.api.actuator;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Actuator endpoint (/actuator/datasource) reporting the state of the connection pool of the primary and how long requests
+ * wait for a connection.
+ */
+@Component
+@Endpoint(id = "datasource")
+public class DataSourcePoolEndpoint {
+
+    // The Hikari pool itself, or the routing data source of the primary and the replicas
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @ReadOperation
+    public Map<String, Object> pool() throws SQLException {
+        // The primary, outside of a read-only transaction
+        final HikariDataSource dataSource = this.dataSource.unwrap(HikariDataSource.class);
+        final Map<String, Object> pool = new LinkedHashMap<>();
+        pool.put("name", dataSource.getPoolName());
+        pool.put("maximumPoolSize", dataSource.getMaximumPoolSize());
+        pool.put("minimumIdle", dataSource.getMinimumIdle());
+        final HikariPoolMXBean poolMXBean = dataSource.getHikariPoolMXBean();
+        if (poolMXBean != null) {
+            pool.put("active", poolMXBean.getActiveConnections());
+            pool.put("idle", poolMXBean.getIdleConnections());
+            pool.put("pending", poolMXBean.getThreadsAwaitingConnection());
+            pool.put("total", poolMXBean.getTotalConnections());
+        }
+        final Timer acquire = meterRegistry.find("hikaricp.connections.acquire").tag("pool", dataSource.getPoolName()).timer();
+        if (acquire != null) {
+            pool.put("acquire", acquireLatency(acquire));
+        }
+        return pool;
+    }
+
+    private Map<String, Object> acquireLatency(final Timer acquire) {
+        final HistogramSnapshot snapshot = acquire.takeSnapshot();
+        final Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("count", snapshot.count());
+        latency.put("meanMs", snapshot.mean(TimeUnit.MILLISECONDS));
+        latency.put("maxMs", snapshot.max(TimeUnit.MILLISECONDS));
+        for (final ValueAtPercentile percentile : snapshot.percentileValues()) {
+            latency.put("p" + Math.round(percentile.percentile() * 100) + "Ms", percentile.value(TimeUnit.MILLISECONDS));
+        }
+        return latency;
+    }
+}
@@ -0,0 +1,143 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandlerComposite;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * This Configuration sets up the handling of the CompletableFuture returned by the endpoints run on the
+ * {@link RequestExecutor}. A future still running when the endpoint returns is answered asynchronously once it
+ * completes, as Spring MVC does by default. A future that is already complete, as always in servlet mode, is written
+ * on the calling thread without starting asynchronous request processing.
+ */
+@Configuration
+public class AsyncWebConfiguration implements WebMvcConfigurer {
+
+    // Requests still running on the RequestExecutor after this long are answered with 503
+    @Value("${quora.request-execution.timeout-ms:30000}")
+    private long timeoutMillis;
+
+    @Override
+    public void configureAsyncSupport(final AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(timeoutMillis);
+    }
+
+    @Bean
+    public static BeanPostProcessor completedFutureReturnValueHandlerRegistrar() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                if (bean instanceof RequestMappingHandlerAdapter) {
+                    final RequestMappingHandlerAdapter adapter = (RequestMappingHandlerAdapter) bean;
+                    // Ahead of the default handlers, which would start asynchronous processing for any future
+                    final List<HandlerMethodReturnValueHandler> handlers = new ArrayList<>();
+                    handlers.add(new CompletedFutureReturnValueHandler(
+                            new HandlerMethodReturnValueHandlerComposite().addHandlers(adapter.getReturnValueHandlers())));
+                    handlers.addAll(adapter.getReturnValueHandlers());
+                    adapter.setReturnValueHandlers(handlers);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Hands the result of a completed CompletableFuture to the handler of its own type, or throws the exception it
+     * completed with so that the RestExceptionHandler renders it. Futures still running go to the default handlers.
+     */
+    static final class CompletedFutureReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+        private final HandlerMethodReturnValueHandlerComposite delegate;
+
+        CompletedFutureReturnValueHandler(final HandlerMethodReturnValueHandlerComposite delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean supportsReturnType(final MethodParameter returnType) {
+            return CompletableFuture.class.isAssignableFrom(returnType.getParameterType());
+        }
+
+        @Override
+        public void handleReturnValue(final Object returnValue, final MethodParameter returnType,
+                                      final ModelAndViewContainer mavContainer, final NativeWebRequest webRequest) throws Exception {
+            final CompletableFuture<?> future = (CompletableFuture<?>) returnValue;
+            if (future == null || !future.isDone()) {
+                delegate.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+                return;
+            }
+            final Object result;
+            try {
+                result = future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Exception) {
+                    throw (Exception) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+            if (result == null) {
+                // Answered already, e.g. 304 set by WebRequest.checkNotModified
+                mavContainer.setRequestHandled(true);
+                return;
+            }
+            delegate.handleReturnValue(result, new ResultMethodParameter(returnType, result.getClass()), mavContainer, webRequest);
+        }
+    }
+
+    /**
+     * Return type of a controller method narrowed from CompletableFuture&lt;T&gt; to T, as Spring MVC does for the
+     * result of asynchronous processing.
+     */
+    private static final class ResultMethodParameter extends MethodParameter {
+
+        private final Class<?> resultType;
+
+        private final ResolvableType resultGenericType;
+
+        private ResultMethodParameter(final MethodParameter futureType, final Class<?> resultType) {
+            super(futureType);
+            this.resultType = resultType;
+            this.resultGenericType = ResolvableType.forMethodParameter(futureType).getGeneric();
+        }
+
+        private ResultMethodParameter(final ResultMethodParameter original) {
+            super(original);
+            this.resultType = original.resultType;
+            this.resultGenericType = original.resultGenericType;
+        }
+
+        @Override
+        public Class<?> getParameterType() {
+            return resultType;
+        }
+
+        @Override
+        public Type getGenericParameterType() {
+            return resultGenericType.getType();
+        }
+
+        @Override
+        public ResultMethodParameter clone() {
+            return new ResultMethodParameter(this);
+        }
+    }
+}
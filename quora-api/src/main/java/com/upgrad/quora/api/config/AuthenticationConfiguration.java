@@ -0,0 +1,64 @@
+package com.upgrad.quora.api.config;
+
+import com.upgrad.quora.api.interceptor.AuthenticationInterceptor;
+import com.upgrad.quora.service.business.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.ServletRequestBindingException;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+/**
+ * This Configuration registers the {@link AuthenticationInterceptor} and passes the principal it creates to every
+ * endpoint with a {@link UserPrincipal} parameter.
+ */
+@Configuration
+public class AuthenticationConfiguration implements WebMvcConfigurer {
+
+    @Autowired
+    private AuthenticationInterceptor authenticationInterceptor;
+
+    @Override
+    public void addInterceptors(final InterceptorRegistry registry) {
+        registry.addInterceptor(authenticationInterceptor);
+    }
+
+    @Override
+    public void addArgumentResolvers(final List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new UserPrincipalArgumentResolver());
+    }
+
+    /**
+     * Resolves UserPrincipal parameters, answering 400 like a missing @RequestHeader if there is no authorization
+     * header.
+     */
+    static final class UserPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+        @Override
+        public boolean supportsParameter(final MethodParameter parameter) {
+            return UserPrincipal.class.equals(parameter.getParameterType());
+        }
+
+        @Override
+        public Object resolveArgument(final MethodParameter parameter, final ModelAndViewContainer mavContainer,
+                                      final NativeWebRequest webRequest, final WebDataBinderFactory binderFactory)
+                throws ServletRequestBindingException {
+            final UserPrincipal principal =
+                    AuthenticationInterceptor.getPrincipal(webRequest.getNativeRequest(HttpServletRequest.class));
+            if (principal == null) {
+                throw new ServletRequestBindingException("Missing request header '" + HttpHeaders.AUTHORIZATION
+                        + "' for method parameter of type " + UserPrincipal.class.getSimpleName());
+            }
+            return principal;
+        }
+    }
+}
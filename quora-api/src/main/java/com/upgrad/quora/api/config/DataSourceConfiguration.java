@@ -0,0 +1,154 @@
+package com.upgrad.quora.api.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionOutcome;
+import org.springframework.boot.autoconfigure.condition.SpringBootCondition;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This Configuration creates the HikariCP pool used by JPA with defaults sized for this host and pgjdbc statement caching.
+ * Any spring.datasource.hikari.* property still overrides the defaults set here.
+ * <p>
+ * When quora.datasource.replicas.urls is not empty, read-only transactions are routed to those replicas, each with a
+ * pool of the same size and settings as the primary one, see {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    public static final String POOL_NAME = "quora";
+
+    public static final String REPLICA_URLS_PROPERTY = "quora.datasource.replicas.urls";
+
+    // 0 means (2 * available processors) + 1
+    @Value("${quora.datasource.pool-size:0}")
+    private int poolSize;
+
+    // Number of executions of a statement before pgjdbc switches it to a named server-side prepared statement
+    @Value("${quora.datasource.prepare-threshold:1}")
+    private int prepareThreshold;
+
+    @Value("${quora.datasource.prepared-statement-cache-queries:256}")
+    private int preparedStatementCacheQueries;
+
+    @Value("${quora.datasource.prepared-statement-cache-size-mib:5}")
+    private int preparedStatementCacheSizeMiB;
+
+    // Lets pgjdbc send a JDBC batch of inserts as multi-row INSERT statements
+    @Value("${quora.datasource.rewrite-batched-inserts:true}")
+    private boolean reWriteBatchedInserts;
+
+    @Value("${quora.datasource.leak-detection-threshold-ms:60000}")
+    private long leakDetectionThresholdMillis;
+
+    // Comma separated JDBC urls of the replicas, with the username and password of the primary
+    @Value("${quora.datasource.replicas.urls:}")
+    private String[] replicaUrls;
+
+    @Value("${quora.datasource.replicas.max-lag-ms:1000}")
+    private long replicaMaxLagMillis;
+
+    @Value("${quora.datasource.replicas.check-interval-ms:1000}")
+    private long replicaCheckIntervalMillis;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    @Conditional(NoReplicasCondition.class)
+    public HikariDataSource dataSource(final DataSourceProperties properties, final ObjectProvider<MeterRegistry> meterRegistry) {
+        final HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configure(dataSource, POOL_NAME, meterRegistry);
+        return dataSource;
+    }
+
+    /**
+     * Data source used by JPA when replicas are configured, routing read-only transactions to the replicas, see
+     * {@link ReplicaRoutingDataSource}. The pools of the primary and the replicas are not beans of their own: a second
+     * DataSource bean created while this one is would make the data source initialization of Spring Boot depend on
+     * this one, a cycle.
+     */
+    @Bean
+    @Conditional(ReplicasCondition.class)
+    public ReplicaRoutingDataSource replicaRoutingDataSource(final DataSourceProperties properties, final Environment environment,
+                                                             final ObjectProvider<MeterRegistry> meterRegistry) {
+        final HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        configure(primary, POOL_NAME, meterRegistry);
+        // As @ConfigurationProperties does for the dataSource bean, any spring.datasource.hikari.* property still wins
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        final List<DataSource> replicas = new ArrayList<>(replicaUrls.length);
+        for (int i = 0; i < replicaUrls.length; i++) {
+            final HikariDataSource replica = new HikariDataSource();
+            primary.copyStateTo(replica);
+            replica.setJdbcUrl(replicaUrls[i].trim());
+            replica.setReadOnly(true);
+            configure(replica, POOL_NAME + "-replica-" + i, meterRegistry);
+            replicas.add(replica);
+        }
+        final ReplicaRoutingDataSource routingDataSource =
+                new ReplicaRoutingDataSource(primary, replicas, replicaMaxLagMillis, replicaCheckIntervalMillis);
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            for (int i = 0; i < replicas.size(); i++) {
+                final int replica = i;
+                Gauge.builder("quora.datasource.replica.lag", routingDataSource, routing -> routing.getLagMillis(replica))
+                        .tag("pool", POOL_NAME + "-replica-" + i)
+                        .description("Replay lag of the replica in milliseconds as of the last health check, -1 if it failed")
+                        .register(registry);
+            }
+        }
+        return routingDataSource;
+    }
+
+    private void configure(final HikariDataSource dataSource, final String poolName, final ObjectProvider<MeterRegistry> meterRegistry) {
+        dataSource.setPoolName(poolName);
+        dataSource.setMaximumPoolSize(poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 2 + 1);
+        dataSource.setLeakDetectionThreshold(leakDetectionThresholdMillis);
+        dataSource.addDataSourceProperty("prepareThreshold", prepareThreshold);
+        dataSource.addDataSourceProperty("preparedStatementCacheQueries", preparedStatementCacheQueries);
+        dataSource.addDataSourceProperty("preparedStatementCacheSizeMiB", preparedStatementCacheSizeMiB);
+        dataSource.addDataSourceProperty("reWriteBatchedInserts", reWriteBatchedInserts);
+        // Registered before the pool starts so that connection acquire time is recorded from the first request on
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+        }
+    }
+
+    /**
+     * Matches when quora.datasource.replicas.urls has at least one url; the key is present but empty by default.
+     */
+    static class ReplicasCondition extends SpringBootCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(final ConditionContext context, final AnnotatedTypeMetadata metadata) {
+            final String urls = context.getEnvironment().getProperty(REPLICA_URLS_PROPERTY, "");
+            return urls.trim().isEmpty()
+                    ? ConditionOutcome.noMatch(REPLICA_URLS_PROPERTY + " is empty")
+                    : ConditionOutcome.match(REPLICA_URLS_PROPERTY + " is set");
+        }
+    }
+
+    static class NoReplicasCondition extends ReplicasCondition {
+
+        @Override
+        public ConditionOutcome getMatchOutcome(final ConditionContext context, final AnnotatedTypeMetadata metadata) {
+            return ConditionOutcome.inverse(super.getMatchOutcome(context, metadata));
+        }
+    }
+}
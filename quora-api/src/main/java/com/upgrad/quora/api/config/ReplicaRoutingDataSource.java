@@ -0,0 +1,193 @@
+package com.upgrad.quora.api.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sends the connections of read-only transactions to the replicas, round-robin, and everything else to the primary.
+ * <p>
+ * Every replica is checked on a fixed interval: a replica that cannot be queried, or whose replay lag is more than
+ * the configured maximum, gets no reads until a later check finds it caught up. Reads go to the primary when no
+ * replica is usable. The read-only flag is only known once the transaction has begun, so the physical connection is
+ * fetched lazily on the first statement (see LazyConnectionDataSourceProxy) and only then routed.
+ * <p>
+ * This is the only DataSource bean when replicas are configured: the pools of the primary and of the replicas are
+ * owned by it and closed with it.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Replay lag in milliseconds, 0 when all the received WAL is replayed (an idle primary writes nothing to replay)
+    // or when the server is not a standby at all, -1 when nothing has been replayed yet
+    private static final String LAG_QUERY = "SELECT CASE"
+            + " WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0"
+            + " ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, -1) END";
+
+    private final DataSource primary;
+
+    private final List<DataSource> replicas;
+
+    private final long maxLagMillis;
+
+    private final long checkIntervalMillis;
+
+    private final Router router = new Router();
+
+    // Lag of each replica as of the last check, -1 if it could not be checked
+    private final AtomicLongArray lagMillis;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ScheduledExecutorService healthChecker;
+
+    /**
+     * @param primary             data source of the primary.
+     * @param replicas            data sources of the replicas.
+     * @param maxLagMillis        replicas lagging more than this get no reads.
+     * @param checkIntervalMillis time between two checks of the replicas, 0 to check them only when
+     *                            {@link #checkReplicas()} is called.
+     */
+    public ReplicaRoutingDataSource(final DataSource primary, final List<DataSource> replicas,
+                                    final long maxLagMillis, final long checkIntervalMillis) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxLagMillis = maxLagMillis;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.lagMillis = new AtomicLongArray(replicas.size());
+        final Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(i, replicas.get(i));
+            lagMillis.set(i, -1);
+        }
+        router.setTargetDataSources(targets);
+        router.setDefaultTargetDataSource(primary);
+        router.afterPropertiesSet();
+        setTargetDataSource(router);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        checkReplicas();
+        if (checkIntervalMillis <= 0) {
+            return;
+        }
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkReplicas, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+        for (DataSource replica : replicas) {
+            if (replica instanceof AutoCloseable) {
+                ((AutoCloseable) replica).close();
+            }
+        }
+        if (primary instanceof AutoCloseable) {
+            ((AutoCloseable) primary).close();
+        }
+    }
+
+    /**
+     * @param replica index of the replica.
+     * @return its replay lag in milliseconds as of the last check, -1 if it could not be checked.
+     */
+    public long getLagMillis(final int replica) {
+        return lagMillis.get(replica);
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * @return the data source a connection fetched now would come from.
+     */
+    DataSource determineTargetDataSource() {
+        final Integer replica = determineReplica();
+        return replica == null ? primary : replicas.get(replica);
+    }
+
+    /**
+     * Queries the lag of every replica, run on the check interval.
+     */
+    void checkReplicas() {
+        for (int i = 0; i < replicas.size(); i++) {
+            long lag;
+            try (Connection connection = replicas.get(i).getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(checkIntervalMillis)));
+                try (ResultSet resultSet = statement.executeQuery(LAG_QUERY)) {
+                    resultSet.next();
+                    lag = resultSet.getLong(1);
+                }
+            } catch (SQLException | RuntimeException e) {
+                LOGGER.debug("Health check of replica {} failed", i, e);
+                lag = -1;
+            }
+            final boolean wasUsable = isUsable(i);
+            lagMillis.set(i, lag);
+            if (wasUsable != isUsable(i)) {
+                LOGGER.warn("Replica {} is {} (lag {} ms, maximum {} ms)", i, wasUsable ? "no longer used" : "used again", lag, maxLagMillis);
+            }
+        }
+    }
+
+    /**
+     * @return index of the next usable replica for a read-only transaction, null for the primary.
+     */
+    private Integer determineReplica() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return null;
+        }
+        final int start = next.getAndIncrement() & Integer.MAX_VALUE;
+        for (int i = 0; i < replicas.size(); i++) {
+            final int replica = (start + i) % replicas.size();
+            if (isUsable(replica)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private boolean isUsable(final int replica) {
+        final long lag = getLagMillis(replica);
+        return lag >= 0 && lag <= maxLagMillis;
+    }
+
+    /**
+     * Picks the data source of each physical connection, once the proxy fetches it.
+     */
+    private final class Router extends AbstractRoutingDataSource {
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return determineReplica();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.upgrad.quora.api.config;
+
+import com.upgrad.quora.service.exception.ServiceOverloadedException;
+import com.upgrad.quora.service.metrics.RequestStatements;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the work of the endpoints, which mostly waits on the database or on password hashing, in one of the
+ * {@link Bulkhead}s: sign up, sign in and sign out, the write endpoints and the read endpoints.
+ * <p>
+ * In servlet mode the work runs on the calling servlet thread and the returned future is already complete, so the
+ * response is written synchronously (see {@link AsyncWebConfiguration}). A bulkhead then admits at most its share of
+ * the Tomcat threads, so that a burst of one kind of request leaves threads to the others. In async mode the work runs
+ * on the bounded pool of its bulkhead and the servlet thread goes back to the container right away, so that a few
+ * container threads can hold many requests waiting on a slow database; the write and read pools split the connections
+ * between them rather than each having one thread per connection. When a bulkhead is full the request fails fast with
+ * {@link ServiceOverloadedException} instead of queueing further.
+ */
+@Component
+public class RequestExecutor {
+
+    public static final String SERVLET_MODE = "servlet";
+
+    public static final String ASYNC_MODE = "async";
+
+    @Value("${quora.request-execution.mode:" + SERVLET_MODE + "}")
+    private String mode;
+
+    // 0 means the number of available processors, the work mostly waits on the password hashing pool
+    @Value("${quora.request-execution.bulkheads.auth.pool-size:0}")
+    private int authPoolSize;
+
+    @Value("${quora.request-execution.bulkheads.auth.queue-capacity:200}")
+    private int authQueueCapacity;
+
+    @Value("${quora.request-execution.bulkheads.auth.thread-share:0.25}")
+    private double authThreadShare;
+
+    // 0 means a share of the connection pool: a third for writes, the rest for reads
+    @Value("${quora.request-execution.bulkheads.write.pool-size:${quora.request-execution.pool-size:0}}")
+    private int writePoolSize;
+
+    @Value("${quora.request-execution.bulkheads.write.queue-capacity:${quora.request-execution.queue-capacity:1000}}")
+    private int writeQueueCapacity;
+
+    @Value("${quora.request-execution.bulkheads.write.thread-share:0.4}")
+    private double writeThreadShare;
+
+    @Value("${quora.request-execution.bulkheads.read.pool-size:${quora.request-execution.pool-size:0}}")
+    private int readPoolSize;
+
+    @Value("${quora.request-execution.bulkheads.read.queue-capacity:${quora.request-execution.queue-capacity:1000}}")
+    private int readQueueCapacity;
+
+    @Value("${quora.request-execution.bulkheads.read.thread-share:0.6}")
+    private double readThreadShare;
+
+    @Value("${quora.request-execution.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value("${quora.datasource.pool-size:0}")
+    private int dataSourcePoolSize;
+
+    @Value("${server.tomcat.max-threads:200}")
+    private int maxThreads;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Map<Bulkhead, ThreadPoolExecutor> executors = new EnumMap<>(Bulkhead.class);
+
+    // Requests each bulkhead may hold in servlet mode
+    private final Map<Bulkhead, Semaphore> permits = new EnumMap<>(Bulkhead.class);
+
+    /**
+     * The kinds of request kept apart from each other.
+     */
+    public enum Bulkhead {
+        /** Sign up, sign in and sign out, which wait on password hashing. */
+        AUTH,
+        /** Creating, editing and deleting questions, answers and users. */
+        WRITE,
+        /** Listing, searching and reading questions, answers and profiles. */
+        READ
+    }
+
+    /**
+     * Work of an endpoint, which may throw the checked exceptions handled by the RestExceptionHandler.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T call() throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!ASYNC_MODE.equals(mode)) {
+            // The requests run on the Tomcat threads, so that is what the bulkheads have to share
+            permits.put(Bulkhead.AUTH, new Semaphore(threadShare(authThreadShare)));
+            permits.put(Bulkhead.WRITE, new Semaphore(threadShare(writeThreadShare)));
+            permits.put(Bulkhead.READ, new Semaphore(threadShare(readThreadShare)));
+            return;
+        }
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final int connections = dataSourcePoolSize > 0 ? dataSourcePoolSize : processors * 2 + 1;
+        final int writeConnections = Math.max(1, connections / 3);
+        init(Bulkhead.AUTH, authPoolSize > 0 ? authPoolSize : processors, authQueueCapacity);
+        init(Bulkhead.WRITE, writePoolSize > 0 ? writePoolSize : writeConnections, writeQueueCapacity);
+        init(Bulkhead.READ, readPoolSize > 0 ? readPoolSize : Math.max(1, connections - writeConnections),
+                readQueueCapacity);
+    }
+
+    private int threadShare(final double share) {
+        return Math.max(1, (int) (maxThreads * share));
+    }
+
+    private void init(final Bulkhead bulkhead, final int threads, final int queueCapacity) {
+        final String name = "request-execution-" + bulkhead.name().toLowerCase();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        executors.put(bulkhead, executor);
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            new ExecutorServiceMetrics(executor, "request-execution", Tags.of("bulkhead", bulkhead.name().toLowerCase()))
+                    .bindTo(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param bulkhead bulkhead the work runs in.
+     * @param work work of the endpoint.
+     * @return future completed with the result of the work, or exceptionally with the exception it threw.
+     * The future completes with ServiceOverloadedException SVC-002 if the bulkhead is full.
+     */
+    public <T> CompletableFuture<T> supply(final Bulkhead bulkhead, final Work<T> work) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        final ThreadPoolExecutor executor = executors.get(bulkhead);
+        if (executor == null) {
+            final Semaphore semaphore = permits.get(bulkhead);
+            if (!semaphore.tryAcquire()) {
+                future.completeExceptionally(overloaded());
+                return future;
+            }
+            try {
+                run(work, future);
+            } finally {
+                semaphore.release();
+            }
+            return future;
+        }
+        final RequestStatements statements = RequestStatements.current();
+        try {
+            executor.execute(() -> {
+                final RequestStatements previous = RequestStatements.attach(statements);
+                try {
+                    run(work, future);
+                } finally {
+                    RequestStatements.restore(previous);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(overloaded());
+        }
+        return future;
+    }
+
+    private ServiceOverloadedException overloaded() {
+        return new ServiceOverloadedException("SVC-002", "Too many requests, try again later", retryAfterSeconds);
+    }
+
+    private static <T> void run(final Work<T> work, final CompletableFuture<T> future) {
+        try {
+            future.complete(work.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
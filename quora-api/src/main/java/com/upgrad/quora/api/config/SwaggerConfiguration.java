@@ -1,14 +1,20 @@
 package com.upgrad.quora.api.config;
 
 
+import com.upgrad.quora.service.business.UserPrincipal;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import springfox.documentation.builders.ParameterBuilder;
 import springfox.documentation.builders.PathSelectors;
 import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.schema.ModelRef;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 import springfox.documentation.swagger2.annotations.EnableSwagger2;
 
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * This Configuration integrates Swagger2 into the existing Spring Boot project.
  */
@@ -18,6 +24,13 @@ public class SwaggerConfiguration {
 
     @Bean
     public Docket swagger() {
-        return new Docket(DocumentationType.SWAGGER_2).select().apis(RequestHandlerSelectors.basePackage("com.upgrad.quora.api.controller")).paths(PathSelectors.any()).build();
+        // The endpoints run on the RequestExecutor return CompletableFuture<ResponseEntity<T>>, documented as T
+        // The UserPrincipal of an endpoint is read from the authorization header by the AuthenticationInterceptor
+        return new Docket(DocumentationType.SWAGGER_2).genericModelSubstitutes(CompletableFuture.class)
+                .ignoredParameterTypes(UserPrincipal.class)
+                .globalOperationParameters(Collections.singletonList(new ParameterBuilder().name("authorization")
+                        .description("Bearer access token, required by all the endpoints but sign up, sign in and sign out")
+                        .modelRef(new ModelRef("string")).parameterType("header").required(false).build()))
+                .select().apis(RequestHandlerSelectors.basePackage("com.upgrad.quora.api.controller")).paths(PathSelectors.any()).build();
     }
 }
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.RequestExecutor;
+import com.upgrad.quora.api.config.RequestExecutor.Bulkhead;
 import com.upgrad.quora.api.model.UserDeleteResponse;
 import com.upgrad.quora.service.business.AdminService;
+import com.upgrad.quora.service.business.UserPrincipal;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
@@ -11,6 +14,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/")
 public class AdminController {
@@ -18,26 +23,28 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private RequestExecutor requestExecutor;
+
 
     /**
      * To delete a user based on userId.
      * @param userId user id of the user whose details has to be fetched.
-     * @param accessToken Access token to authenticate the user who is requesting for user details.
+     * @param principal principal of the request, holding the access token of the user.
      * @return
      * @throws AuthorizationFailedException - if the access token is invalid or already logged out or user is not an admin or user with enetered uuid does not exist
      * @throws UserNotFoundException - if the user with given id is not present in the database.
      */
     @RequestMapping(method = RequestMethod.DELETE, path = "/admin/user/{userId}",produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<UserDeleteResponse> deleteUser(@PathVariable("userId") String userId,
-                                                         @RequestHeader("authorization") final String accessToken) throws AuthorizationFailedException, UserNotFoundException {
-
-
-        UserEntity userEntity = adminService.deleteUser( userId, accessToken);
-
-        UserDeleteResponse userDeleteResponse = new UserDeleteResponse().id( userEntity.getUuid() )
-                .status( "USER SUCCESSFULLY DELETED" );
+    public CompletableFuture<ResponseEntity<UserDeleteResponse>> deleteUser(@PathVariable("userId") String userId,
+                                                                            final UserPrincipal principal) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            UserEntity userEntity = adminService.deleteUser( userId, principal);
 
-        return new ResponseEntity<UserDeleteResponse>( userDeleteResponse,HttpStatus.OK );
+            UserDeleteResponse userDeleteResponse = new UserDeleteResponse().id( userEntity.getUuid() )
+                    .status( "USER SUCCESSFULLY DELETED" );
 
+            return new ResponseEntity<UserDeleteResponse>( userDeleteResponse,HttpStatus.OK );
+        });
     }
 }
\ No newline at end of file
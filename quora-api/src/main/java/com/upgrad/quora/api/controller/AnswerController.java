@@ -1,33 +1,47 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.RequestExecutor;
+import com.upgrad.quora.api.config.RequestExecutor.Bulkhead;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerBusinessService;
+import com.upgrad.quora.service.business.IdGenerator;
+import com.upgrad.quora.service.business.UserPrincipal;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.model.AnswerSummary;
 import org.mockito.stubbing.Answer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class AnswerController {
     @Autowired
     private AnswerBusinessService answerBusinessService;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
+
     /**
      * This method is used for the corresponding question which
      * is to be answered in the database
      *
      * @param questionId    To get respective question using unique key call questionId
-     * @param authorization holds the Bearer access token for authenticating the user.
+     * @param principal     principal of the request, holding the Bearer access token of the user.
      * @return the response for the answer which is created along with httpStatus
      * @throws AuthorizationFailedException If the access token provided by the user does not exist
      *                                      in the database, If the user has signed out
@@ -35,18 +49,58 @@ public class AnswerController {
      *                                      is to be posted does not exist in the database
      */
     @RequestMapping(method = RequestMethod.POST, path = "/question/{questionId}/answer/create")
-    public ResponseEntity<AnswerResponse> createAnswer(final AnswerRequest answerRequest,
-                                                       @PathVariable("questionId") final String questionId,
-                                                       @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException, InvalidQuestionException {
+    public CompletableFuture<ResponseEntity<AnswerResponse>> createAnswer(final AnswerRequest answerRequest,
+                                                                          @PathVariable("questionId") final String questionId,
+                                                                          final UserPrincipal principal) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            final AnswerEntity answer = new AnswerEntity();
+            answer.setAns(answerRequest.getAnswer());
+            answer.setDate(ZonedDateTime.now());
+            answer.setUuid(idGenerator.nextId());
+            final AnswerEntity updatedAnswer = answerBusinessService.createAnswer(answer, questionId, principal);
+            AnswerResponse answerResponse = new AnswerResponse().id(updatedAnswer.getUuid()).status("ANSWER CREATED");
+            return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
+        });
+    }
 
-        final AnswerEntity answer = new AnswerEntity();
-        answer.setAns(answerRequest.getAnswer());
-        answer.setDate(ZonedDateTime.now());
-        answer.setUuid(UUID.randomUUID().toString());
-        final AnswerEntity updatedAnswer = answerBusinessService.createAnswer(answer, questionId, authorization);
-        AnswerResponse answerResponse = new AnswerResponse().id(updatedAnswer.getUuid()).status("ANSWER CREATED");
-        return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.CREATED);
+    /**
+     * This method is used to post many answers to the corresponding question in one call
+     *
+     * @param answerBulkRequest The answers to be posted
+     * @param questionId        To get respective question using unique key call questionId
+     * @param principal     principal of the request, holding the Bearer access token of the user.
+     * @return the uuids of the answers created, in the order of the request, along with httpStatus
+     * @throws AuthorizationFailedException If the access token provided by the user does not exist
+     *                                      in the database, If the user has signed out
+     * @throws InvalidQuestionException     If the question uuid entered by the user whose answers
+     *                                      are to be posted does not exist in the database
+     * @throws InvalidRequestException      If there are no answers or more than the configured maximum
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/question/{questionId}/answer/bulk",
+            consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<AnswerBulkResponse>> createAnswers(@RequestBody final AnswerBulkRequest answerBulkRequest,
+                                                                               @PathVariable("questionId") final String questionId,
+                                                                               final UserPrincipal principal) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            final ZonedDateTime now = ZonedDateTime.now();
+            final List<AnswerRequest> answerRequests =
+                    answerBulkRequest.getAnswers() == null ? new ArrayList<>() : answerBulkRequest.getAnswers();
+            final List<AnswerEntity> answers = new ArrayList<>(answerRequests.size());
+            for (AnswerRequest answerRequest : answerRequests) {
+                final AnswerEntity answer = new AnswerEntity();
+                answer.setAns(answerRequest.getAnswer());
+                answer.setDate(now);
+                answer.setUuid(idGenerator.nextId());
+                answers.add(answer);
+            }
+            final List<AnswerEntity> createdAnswers = answerBusinessService.createAnswers(answers, questionId, principal);
+            final List<String> ids = new ArrayList<>(createdAnswers.size());
+            for (AnswerEntity answer : createdAnswers) {
+                ids.add(answer.getUuid());
+            }
+            AnswerBulkResponse answerBulkResponse = new AnswerBulkResponse().ids(ids).status("ANSWERS CREATED");
+            return new ResponseEntity<AnswerBulkResponse>(answerBulkResponse, HttpStatus.CREATED);
+        });
     }
 
     /**
@@ -54,23 +108,24 @@ public class AnswerController {
      * Note,only the owner of the answer can edit the answer
      *
      * @param answerId          Is the uuid of the answer that needed to be edited
-     * @param authorization     holds the Bearer access token for authenticating the user.
+     * @param principal     principal of the request, holding the Bearer access token of the user.
      * @param answerEditRequest Is uuid of the edited answer and message 'ANSWER EDITED' in the JSON response with the corresponding HTTP status.
      * @return answer uuid with the message 'ANSWER EDITED'
      * @throws AnswerNotFoundException      If answer with uuid which is to be edited does not exist in the database
      * @throws AuthorizationFailedException If access token does not exit : if user has signed out : if non-owner tries to edit
      */
     @RequestMapping(method = RequestMethod.PUT, path = "/answer/edit/{answerId}")
-    public ResponseEntity<AnswerEditResponse> editAnswerContent(
+    public CompletableFuture<ResponseEntity<AnswerEditResponse>> editAnswerContent(
             @PathVariable("answerId") final String answerId,
-            @RequestHeader("authorization") final String authorization,
-            final AnswerEditRequest answerEditRequest)
-            throws AnswerNotFoundException, AuthorizationFailedException {
-        final AnswerEntity answer = new AnswerEntity();
-        answer.setAns(answerEditRequest.getContent());
-        final AnswerEntity editAnswerEntity = answerBusinessService.editAnswerContent(answer, answerId, authorization);
-        AnswerEditResponse answerEditResponse = new AnswerEditResponse().id(editAnswerEntity.getUuid()).status("ANSWER EDITED");
-        return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
+            final UserPrincipal principal,
+            final AnswerEditRequest answerEditRequest) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            final AnswerEntity answer = new AnswerEntity();
+            answer.setAns(answerEditRequest.getContent());
+            final AnswerEntity editAnswerEntity = answerBusinessService.editAnswerContent(answer, answerId, principal);
+            AnswerEditResponse answerEditResponse = new AnswerEditResponse().id(editAnswerEntity.getUuid()).status("ANSWER EDITED");
+            return new ResponseEntity<AnswerEditResponse>(answerEditResponse, HttpStatus.OK);
+        });
     }
 
     /**
@@ -78,45 +133,64 @@ public class AnswerController {
      * only the owner of the answer or admin can delete the question
      *
      * @param answerId      It is the Uuid of answer to be deleted
-     * @param authorization holds the Bearer access token for authenticating the user.
+     * @param principal     principal of the request, holding the Bearer access token of the user.
      * @return uuid of the deleted answer and message 'ANSWER DELETED' in the JSON response with the corresponding HTTP status.
      * @throws AuthorizationFailedException If the access token provided by the user does not exist in the database,
      *                                      If the user has signed out, if the user who is not the owner of the answer or the role of the user is ‘nonadmin’ and tries to delete the answer
      * @throws AnswerNotFoundException      If the answer with uuid which is to be deleted does not exist in the database
      */
     @RequestMapping(method = RequestMethod.DELETE, path = "/answer/delete/{answerId}")
-    public ResponseEntity<AnswerResponse> deleteAnswer(
-            @PathVariable("answerId") final String answerId, @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException, AnswerNotFoundException, InvalidQuestionException {
-        String answerUUID = answerBusinessService.deleteAnswer(answerId, authorization);
-        final AnswerResponse answerResponse = new AnswerResponse();
-        answerResponse.id(answerUUID).status("ANSWER DELETED");
-        return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<AnswerResponse>> deleteAnswer(
+            @PathVariable("answerId") final String answerId, final UserPrincipal principal) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            String answerUUID = answerBusinessService.deleteAnswer(answerId, principal);
+            final AnswerResponse answerResponse = new AnswerResponse();
+            answerResponse.id(answerUUID).status("ANSWER DELETED");
+            return new ResponseEntity<AnswerResponse>(answerResponse, HttpStatus.OK);
+        });
     }
 
     /**
      * This method retrieves all the answers for a specific Question
-     * after validating the user authorization token
+     * after validating the user authorization token.
+     * Answers 304 without querying the answers if If-None-Match holds the current ETag of the listing
      *
      * @param questionId    The UUID of the question for which answers are to be retrieved
-     * @param authorization holds the Bearer access token for authenticating the user
+     * @param principal     principal of the request, holding the Bearer access token of the user.
+     * @param webRequest    request checked for If-None-Match
      * @return The question content and the list of all answers with respective uuid and answer content
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      * @throws InvalidQuestionException     If the Question with the uuid passed doesn't exist in DB
      */
     @RequestMapping(path = "/answer/all/{questionId}", method = RequestMethod.GET)
-    public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(
-            @PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException, InvalidQuestionException {
-        final List<AnswerEntity> allAnswersToQuestion = answerBusinessService.getAllAnswersToQuestion(questionId, authorization);
-        List<AnswerDetailsResponse> answerDetailsResponseList = new ArrayList<>();
-        for (AnswerEntity answer : allAnswersToQuestion) {
+    public CompletableFuture<ResponseEntity<List<AnswerDetailsResponse>>> getAllAnswersToQuestion(
+            @PathVariable("questionId") final String questionId, final UserPrincipal principal,
+            final WebRequest webRequest) {
+        return requestExecutor.supply(Bulkhead.READ, () -> {
+            final String eTag = answerBusinessService.getAllAnswersToQuestionETag(questionId, principal);
+            if (eTag != null && webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            final List<AnswerSummary> allAnswersToQuestion = answerBusinessService.getAllAnswersToQuestion(questionId, principal);
+            return new ResponseEntity<List<AnswerDetailsResponse>>(toAnswerDetailsResponses(allAnswersToQuestion), HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Maps the answer summaries to the response model returned when listing the answers of a question
+     *
+     * @param answers The answer summaries to be mapped
+     * @return The list of AnswerDetailsResponse in the same order
+     */
+    public static List<AnswerDetailsResponse> toAnswerDetailsResponses(final List<AnswerSummary> answers) {
+        List<AnswerDetailsResponse> answerDetailsResponseList = new ArrayList<>(answers.size());
+        for (AnswerSummary answer : answers) {
             AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
             answerDetailsResponse.id(answer.getUuid())
-                    .questionContent(answer.getQuestion().getContent())
+                    .questionContent(answer.getQuestionContent())
                     .answerContent(answer.getAns());
             answerDetailsResponseList.add(answerDetailsResponse);
         }
-        return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponseList, HttpStatus.OK);
+        return answerDetailsResponseList;
     }
 }
@@ -1,7 +1,10 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.RequestExecutor;
+import com.upgrad.quora.api.config.RequestExecutor.Bulkhead;
 import com.upgrad.quora.api.model.UserDetailsResponse;
 import com.upgrad.quora.service.business.CommonUserService;
+import com.upgrad.quora.service.business.UserPrincipal;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
@@ -11,6 +14,8 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/")
 public class CommonController {
@@ -18,27 +23,31 @@ public class CommonController {
     @Autowired
     CommonUserService commonUserService;
 
+    @Autowired
+    RequestExecutor requestExecutor;
+
     /**
      * Get the user details provided the userId.
-     * @param accessToken Access token to authenticate the user who is requesting for user details.
+     * @param principal principal of the request, holding the access token of the user.
      * @param userId user id of the user whose details has to be fetched.
      * @return
      * @throws AuthorizationFailedException - if the access token is invalid or already logged out.
      * @throws UserNotFoundException - if the user with given id is not present in the records.
      */
     @RequestMapping(method = RequestMethod.GET, path = "/userprofile/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<UserDetailsResponse> getProfile(@RequestHeader("authorization") final String accessToken, @PathVariable("userId") final String userId) throws AuthorizationFailedException, UserNotFoundException {
-        commonUserService.checkIfTokenIsValid(accessToken);
-        UserEntity userEntity = commonUserService.getUserById(userId);
-        UserDetailsResponse userDetailsResponse = new UserDetailsResponse();
-        userDetailsResponse.setFirstName(userEntity.getFirstName());
-        userDetailsResponse.setLastName(userEntity.getLastName());
-        userDetailsResponse.setUserName(userEntity.getUserName());
-        userDetailsResponse.setEmailAddress(userEntity.getEmail());
-        userDetailsResponse.setDob(userEntity.getDob());
-        userDetailsResponse.setAboutMe(userEntity.getAboutMe());
-        userDetailsResponse.setContactNumber(userEntity.getContactNumber());
-        userDetailsResponse.setCountry(userEntity.getCountry());
-        return new ResponseEntity<UserDetailsResponse>(userDetailsResponse, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<UserDetailsResponse>> getProfile(final UserPrincipal principal, @PathVariable("userId") final String userId) {
+        return requestExecutor.supply(Bulkhead.READ, () -> {
+            UserEntity userEntity = commonUserService.getUserById(principal, userId);
+            UserDetailsResponse userDetailsResponse = new UserDetailsResponse();
+            userDetailsResponse.setFirstName(userEntity.getFirstName());
+            userDetailsResponse.setLastName(userEntity.getLastName());
+            userDetailsResponse.setUserName(userEntity.getUserName());
+            userDetailsResponse.setEmailAddress(userEntity.getEmail());
+            userDetailsResponse.setDob(userEntity.getDob());
+            userDetailsResponse.setAboutMe(userEntity.getAboutMe());
+            userDetailsResponse.setContactNumber(userEntity.getContactNumber());
+            userDetailsResponse.setCountry(userEntity.getCountry());
+            return new ResponseEntity<UserDetailsResponse>(userDetailsResponse, HttpStatus.OK);
+        });
     }
 }
\ No newline at end of file
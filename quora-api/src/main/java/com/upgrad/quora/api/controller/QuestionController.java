@@ -1,31 +1,63 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.config.RequestExecutor;
+import com.upgrad.quora.api.config.RequestExecutor.Bulkhead;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.business.UserPrincipal;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
-import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.model.Page;
+import com.upgrad.quora.service.model.QuestionImportRecord;
+import com.upgrad.quora.service.model.QuestionImportReport;
+import com.upgrad.quora.service.model.QuestionSearchHit;
+import com.upgrad.quora.service.model.QuestionSummary;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/")
 public class QuestionController {
 
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     @Autowired private QuestionService questionService;
 
+    @Autowired private ObjectMapper objectMapper;
+
+    @Autowired private RequestExecutor requestExecutor;
+
     /**
      * Create a question
      *
      * @param questionRequest This object has the content i.e the question.
-     * @param accessToken access token to authenticate user.
+     * @param principal principal of the request, holding the access token of the user.
      * @return UUID of the question created in DB.
      * @throws AuthorizationFailedException in case the access token is invalid.
      */
@@ -33,22 +65,64 @@ public class QuestionController {
             method = RequestMethod.POST,
             path = "/question/create",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionResponse> createQuestion(
-            @RequestHeader("authorization") final String accessToken, QuestionRequest questionRequest)
-            throws AuthorizationFailedException {
-        QuestionEntity questionEntity = new QuestionEntity();
-        questionEntity.setContent(questionRequest.getContent());
-        questionEntity = questionService.createQuestion(questionEntity, accessToken);
-        QuestionResponse questionResponse = new QuestionResponse();
-        questionResponse.setId(questionEntity.getUuid());
-        questionResponse.setStatus("QUESTION CREATED");
-        return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.CREATED);
+    public CompletableFuture<ResponseEntity<QuestionResponse>> createQuestion(
+            final UserPrincipal principal, final QuestionRequest questionRequest) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            QuestionEntity questionEntity = new QuestionEntity();
+            questionEntity.setContent(questionRequest.getContent());
+            questionEntity = questionService.createQuestion(questionEntity, principal);
+            QuestionResponse questionResponse = new QuestionResponse();
+            questionResponse.setId(questionEntity.getUuid());
+            questionResponse.setStatus("QUESTION CREATED");
+            return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.CREATED);
+        });
+    }
+
+    /**
+     * Import many questions in one request. The body is read while the questions are saved, either as newline
+     * delimited JSON with one QuestionRequest per line or as a JSON array of QuestionRequest.
+     * Runs on the servlet thread whatever the request execution mode, since it reads the request body.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param request request the questions are read from.
+     * @return QuestionImportResponse with the number of imported questions and the records that were not imported.
+     * @throws AuthorizationFailedException in case the access token is invalid.
+     * @throws IOException if the request cannot be read.
+     */
+    @RequestMapping(
+            method = RequestMethod.POST,
+            path = "/question/import",
+            consumes = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<QuestionImportResponse> importQuestions(
+            final UserPrincipal principal, final HttpServletRequest request)
+            throws AuthorizationFailedException, IOException {
+        final ImportRecordIterator records =
+                MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.APPLICATION_JSON)
+                        ? new JsonArrayRecordIterator(request)
+                        : new NdjsonRecordIterator(request);
+        final QuestionImportReport report;
+        try {
+            report = questionService.importQuestions(principal, records);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        List<QuestionImportError> errors = new ArrayList<>(report.getErrors().size());
+        for (QuestionImportReport.Failure failure : report.getErrors()) {
+            errors.add(new QuestionImportError().record(failure.getRecord()).message(failure.getMessage()));
+        }
+        QuestionImportResponse questionImportResponse =
+                new QuestionImportResponse().imported(report.getImported()).failed(report.getFailed()).errors(errors);
+        return new ResponseEntity<QuestionImportResponse>(questionImportResponse, HttpStatus.OK);
     }
 
     /**
      * Retrieve all questions posted by any user.
      *
-     * @param accessToken access token to authenticate user.
+     * Answers 304 without querying the questions if If-None-Match holds the current ETag of the listing.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param webRequest request checked for If-None-Match.
      * @return List of QuestionDetailsResponse
      * @throws AuthorizationFailedException in case the access token is invalid.
      */
@@ -56,25 +130,116 @@ public class QuestionController {
             method = RequestMethod.GET,
             path = "/question/all",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(
-            @RequestHeader("authorization") final String accessToken)
-            throws AuthorizationFailedException {
-        List<QuestionEntity> questions = questionService.getAllQuestions(accessToken);
-        List<QuestionDetailsResponse> questionDetailResponses = new ArrayList<>();
-        for (QuestionEntity questionEntity : questions) {
-            QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
-            questionDetailResponse.setId(questionEntity.getUuid());
-            questionDetailResponse.setContent(questionEntity.getContent());
-            questionDetailResponses.add(questionDetailResponse);
-        }
-        return new ResponseEntity<List<QuestionDetailsResponse>>(
-                questionDetailResponses, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<List<QuestionDetailsResponse>>> getAllQuestions(
+            final UserPrincipal principal, final WebRequest webRequest) {
+        return requestExecutor.supply(Bulkhead.READ, () -> {
+            final String eTag = questionService.getAllQuestionsETag(principal);
+            if (eTag != null && webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            List<QuestionSummary> questions = questionService.getAllQuestions(principal);
+            return new ResponseEntity<List<QuestionDetailsResponse>>(
+                    toQuestionDetailsResponses(questions), HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Retrieve one page of questions, newest first.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param cursor nextCursor returned by the previous page, absent for the first page.
+     * @param limit maximum number of questions in the page.
+     * @return QuestionPageResponse with the questions and the cursor of the next page.
+     * @throws AuthorizationFailedException in case the access token is invalid.
+     * @throws InvalidRequestException in case the cursor or limit is invalid.
+     */
+    @RequestMapping(
+            method = RequestMethod.GET,
+            path = "/question/page",
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<QuestionPageResponse>> getQuestionsPage(
+            final UserPrincipal principal,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) {
+        return requestExecutor.supply(Bulkhead.READ, () -> {
+            Page<QuestionSummary> page = questionService.getQuestionsPage(principal, cursor, limit);
+            QuestionPageResponse questionPageResponse = new QuestionPageResponse();
+            questionPageResponse.setQuestions(toQuestionDetailsResponses(page.getItems()));
+            questionPageResponse.setNextCursor(page.getNextCursor());
+            return new ResponseEntity<QuestionPageResponse>(questionPageResponse, HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Search the questions by the words in the question or in its answers, best match first.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param query words to search for.
+     * @param cursor nextCursor returned by the previous page, absent for the first page.
+     * @param limit maximum number of questions in the page.
+     * @return QuestionSearchResponse with the matching questions and the cursor of the next page.
+     * @throws AuthorizationFailedException in case the access token is invalid.
+     * @throws InvalidRequestException in case the query, cursor or limit is invalid.
+     */
+    @RequestMapping(
+            method = RequestMethod.GET,
+            path = "/question/search",
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public CompletableFuture<ResponseEntity<QuestionSearchResponse>> searchQuestions(
+            final UserPrincipal principal,
+            @RequestParam(value = "query") final String query,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit) {
+        return requestExecutor.supply(Bulkhead.READ, () -> {
+            Page<QuestionSearchHit> page = questionService.searchQuestions(principal, query, cursor, limit);
+            List<QuestionSearchResult> results = new ArrayList<>(page.getItems().size());
+            for (QuestionSearchHit hit : page.getItems()) {
+                QuestionSearchResult result = new QuestionSearchResult();
+                result.setId(hit.getUuid());
+                result.setContent(hit.getContent());
+                result.setRank(hit.getRank());
+                result.setSnippet(hit.getSnippet());
+                results.add(result);
+            }
+            QuestionSearchResponse questionSearchResponse = new QuestionSearchResponse();
+            questionSearchResponse.setQuestions(results);
+            questionSearchResponse.setNextCursor(page.getNextCursor());
+            return new ResponseEntity<QuestionSearchResponse>(questionSearchResponse, HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Stream all questions posted by any user as a JSON array written while the questions are read,
+     * so that the full list is never held in memory.
+     * Runs on the servlet thread whatever the request execution mode, since it writes the response itself.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param response response the JSON array is written to.
+     * @throws AuthorizationFailedException in case the access token is invalid.
+     * @throws IOException if the response cannot be written.
+     */
+    @RequestMapping(
+            method = RequestMethod.GET,
+            path = "/question/stream",
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public void streamAllQuestions(
+            final UserPrincipal principal, final HttpServletResponse response)
+            throws AuthorizationFailedException, IOException {
+        final JsonArrayWriter writer = new JsonArrayWriter(response);
+        try {
+            questionService.streamAllQuestions(
+                    principal,
+                    question -> writer.write(toQuestionDetailsResponse(question)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.close();
     }
 
     /**
      * Edit a question
      *
-     * @param accessToken access token to authenticate user.
+     * @param principal principal of the request, holding the access token of the user.
      * @param questionId id of the question to be edited.
      * @param questionEditRequest new content for the question.
      * @return Id and status of the question edited.
@@ -85,46 +250,50 @@ public class QuestionController {
             method = RequestMethod.PUT,
             path = "/question/edit/{questionId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<QuestionEditResponse> editQuestion(
-            @RequestHeader("authorization") final String accessToken,
+    public CompletableFuture<ResponseEntity<QuestionEditResponse>> editQuestion(
+            final UserPrincipal principal,
             @PathVariable("questionId") final String questionId,
-            QuestionEditRequest questionEditRequest)
-            throws AuthorizationFailedException, InvalidQuestionException {
-        QuestionEntity questionEntity =
-                questionService.editQuestion(accessToken, questionId, questionEditRequest.getContent());
-        QuestionEditResponse questionEditResponse = new QuestionEditResponse();
-        questionEditResponse.setId(questionEntity.getUuid());
-        questionEditResponse.setStatus("QUESTION EDITED");
-        return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
+            final QuestionEditRequest questionEditRequest) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            QuestionEntity questionEntity =
+                    questionService.editQuestion(principal, questionId, questionEditRequest.getContent());
+            QuestionEditResponse questionEditResponse = new QuestionEditResponse();
+            questionEditResponse.setId(questionEntity.getUuid());
+            questionEditResponse.setStatus("QUESTION EDITED");
+            return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
+        });
     }
 
     /**
      * Delete a question
      *
-     * @param accessToken access token to authenticate user.
+     * @param principal principal of the request, holding the access token of the user.
      * @param questionId id of the question to be deleted.
      * @return Id and status of the question deleted.
      * @throws AuthorizationFailedException in case the access token is invalid.
      * @throws InvalidQuestionException if question with questionId doesn't exist.
      */
     @RequestMapping(method = RequestMethod.DELETE, path = "/question/delete/{questionId}")
-    public ResponseEntity<QuestionDeleteResponse> deleteQuestion(
-            @RequestHeader("authorization") final String accessToken,
-            @PathVariable("questionId") final String questionId)
-            throws AuthorizationFailedException, InvalidQuestionException {
-
-        QuestionEntity questionEntity = questionService.deleteQuestion(accessToken, questionId);
-        QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse();
-        questionDeleteResponse.setId(questionEntity.getUuid());
-        questionDeleteResponse.setStatus("QUESTION DELETED");
-        return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<QuestionDeleteResponse>> deleteQuestion(
+            final UserPrincipal principal,
+            @PathVariable("questionId") final String questionId) {
+        return requestExecutor.supply(Bulkhead.WRITE, () -> {
+            QuestionEntity questionEntity = questionService.deleteQuestion(principal, questionId);
+            QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse();
+            questionDeleteResponse.setId(questionEntity.getUuid());
+            questionDeleteResponse.setStatus("QUESTION DELETED");
+            return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
+        });
     }
 
     /**
      * Retrieve all questions posted by a user with given userId.
      *
+     * Answers 304 without querying the questions if If-None-Match holds the current ETag of the listing.
+     *
      * @param userId of the user for whose questions has to be shown
-     * @param accessToken access token to authenticate user.
+     * @param principal principal of the request, holding the access token of the user.
+     * @param webRequest request checked for If-None-Match.
      * @return List of QuestionDetailsResponse
      * @throws AuthorizationFailedException in case the access token is invalid.
      */
@@ -132,20 +301,205 @@ public class QuestionController {
             method = RequestMethod.GET,
             path = "question/all/{userId}",
             produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<List<QuestionDetailsResponse>> getQuestionByUserId(
-            @RequestHeader("authorization") final String accessToken,
-            @PathVariable("userId") String userId)
-            throws AuthorizationFailedException, UserNotFoundException {
-
-        List<QuestionEntity> questions = questionService.getAllQuestionsByUser(userId, accessToken);
-        List<QuestionDetailsResponse> questionDetailResponses = new ArrayList<>();
-        for (QuestionEntity questionEntity : questions) {
-            QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
-            questionDetailResponse.setId(questionEntity.getUuid());
-            questionDetailResponse.setContent(questionEntity.getContent());
-            questionDetailResponses.add(questionDetailResponse);
-        }
-        return new ResponseEntity<List<QuestionDetailsResponse>>(
-                questionDetailResponses, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<List<QuestionDetailsResponse>>> getQuestionByUserId(
+            final UserPrincipal principal,
+            @PathVariable("userId") final String userId,
+            final WebRequest webRequest) {
+        return requestExecutor.supply(Bulkhead.READ, () -> {
+            final String eTag = questionService.getAllQuestionsByUserETag(userId, principal);
+            if (eTag != null && webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+
+            List<QuestionSummary> questions = questionService.getAllQuestionsByUser(userId, principal);
+            return new ResponseEntity<List<QuestionDetailsResponse>>(
+                    toQuestionDetailsResponses(questions), HttpStatus.OK);
+        });
+    }
+
+    /**
+     * Maps the question summaries to the response model returned by the listing endpoints.
+     *
+     * @param questions question summaries to be mapped.
+     * @return List of QuestionDetailsResponse in the same order.
+     */
+    public static List<QuestionDetailsResponse> toQuestionDetailsResponses(final List<QuestionSummary> questions) {
+        List<QuestionDetailsResponse> questionDetailResponses = new ArrayList<>(questions.size());
+        for (QuestionSummary question : questions) {
+            questionDetailResponses.add(toQuestionDetailsResponse(question));
+        }
+        return questionDetailResponses;
+    }
+
+    /**
+     * Maps a question summary to the response model returned by the listing endpoints.
+     *
+     * @param question question summary to be mapped.
+     * @return QuestionDetailsResponse with the uuid, content and answer counters of the question.
+     */
+    public static QuestionDetailsResponse toQuestionDetailsResponse(final QuestionSummary question) {
+        QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
+        questionDetailResponse.setId(question.getUuid());
+        questionDetailResponse.setContent(question.getContent());
+        questionDetailResponse.setAnswerCount(question.getAnswerCount());
+        if (question.getLastAnswerAt() != null) {
+            questionDetailResponse.setLastAnswerAt(question.getLastAnswerAt().toOffsetDateTime());
+        }
+        return questionDetailResponse;
+    }
+
+    /**
+     * Reads import records from the request body one at a time. The body is only read once the first record is
+     * asked for, that is after the access token has been validated.
+     */
+    private abstract class ImportRecordIterator implements Iterator<QuestionImportRecord> {
+        private QuestionImportRecord next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public QuestionImportRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final QuestionImportRecord record = next;
+            next = null;
+            return record;
+        }
+
+        /**
+         * @return the next record or null at the end of the body.
+         */
+        protected abstract QuestionImportRecord read() throws IOException;
+
+        protected QuestionImportRecord toRecord(final int record, final QuestionRequest questionRequest) {
+            return QuestionImportRecord.of(record, questionRequest == null ? null : questionRequest.getContent());
+        }
+    }
+
+    /**
+     * Reads newline delimited JSON, one QuestionRequest per line. A malformed line only fails its own record.
+     */
+    private class NdjsonRecordIterator extends ImportRecordIterator {
+        private final HttpServletRequest request;
+        private BufferedReader reader;
+        private int line;
+
+        private NdjsonRecordIterator(final HttpServletRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        protected QuestionImportRecord read() throws IOException {
+            if (reader == null) {
+                reader = new BufferedReader(new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8));
+            }
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    return toRecord(line, objectMapper.readValue(text, QuestionRequest.class));
+                } catch (JsonProcessingException e) {
+                    return QuestionImportRecord.failed(line, e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads a JSON array of QuestionRequest element by element. An element that does not map to a QuestionRequest
+     * only fails its own record, malformed JSON fails the record it is found in and ends the import.
+     */
+    private class JsonArrayRecordIterator extends ImportRecordIterator {
+        private final HttpServletRequest request;
+        private JsonParser parser;
+        private int record;
+        private boolean finished;
+
+        private JsonArrayRecordIterator(final HttpServletRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        protected QuestionImportRecord read() throws IOException {
+            if (finished) {
+                return null;
+            }
+            try {
+                if (parser == null) {
+                    parser = objectMapper.getFactory().createParser(request.getInputStream());
+                    final JsonToken first = parser.nextToken();
+                    if (first != JsonToken.START_ARRAY) {
+                        finished = true;
+                        return first == null ? null : QuestionImportRecord.failed(1, "Expected a JSON array of questions");
+                    }
+                }
+                record++;
+                if (parser.nextToken() == JsonToken.END_ARRAY) {
+                    finished = true;
+                    return null;
+                }
+                final JsonNode element = objectMapper.readTree(parser);
+                try {
+                    return toRecord(record, objectMapper.treeToValue(element, QuestionRequest.class));
+                } catch (JsonProcessingException e) {
+                    return QuestionImportRecord.failed(record, e.getOriginalMessage());
+                }
+            } catch (JsonProcessingException e) {
+                finished = true;
+                return QuestionImportRecord.failed(Math.max(record, 1), e.getOriginalMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes a JSON array element by element. Nothing is written to the response until the first element
+     * (or the end of the array) so that errors raised before that are still rendered by the exception handler.
+     */
+    private class JsonArrayWriter {
+        private final HttpServletResponse response;
+        private JsonGenerator generator;
+
+        private JsonArrayWriter(final HttpServletResponse response) {
+            this.response = response;
+        }
+
+        private void write(final Object element) {
+            try {
+                start();
+                generator.writeObject(element);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void close() throws IOException {
+            start();
+            generator.writeEndArray();
+            generator.flush();
+        }
+
+        private void start() throws IOException {
+            if (generator == null) {
+                response.setStatus(HttpStatus.OK.value());
+                response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+                generator = objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+                generator.writeStartArray();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -1,14 +1,16 @@
 package com.upgrad.quora.api.controller;
 
+import com.upgrad.quora.api.config.RequestExecutor;
+import com.upgrad.quora.api.config.RequestExecutor.Bulkhead;
 import com.upgrad.quora.api.model.SigninResponse;
 import com.upgrad.quora.api.model.SignoutResponse;
 import com.upgrad.quora.api.model.SignupUserRequest;
 import com.upgrad.quora.api.model.SignupUserResponse;
+import com.upgrad.quora.service.business.IdGenerator;
 import com.upgrad.quora.service.business.UserBusinessService;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
-import com.upgrad.quora.service.exception.AuthenticationFailedException;
-import com.upgrad.quora.service.exception.SignOutRestrictedException;
+import com.upgrad.quora.service.exception.ServiceOverloadedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -19,7 +21,7 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/")
@@ -28,6 +30,12 @@ public class UserController {
     @Autowired
     private UserBusinessService userBusinessService;
 
+    @Autowired
+    private IdGenerator idGenerator;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
+
     /**
      * This method registers a user with all the details provided in signup request
      * Scenario when user provides empty or invalid username/email and throws an error message
@@ -35,45 +43,51 @@ public class UserController {
      * @param signupUserRequest parameters for signup request
      * @return UUID of the registered user for further login
      * @throws SignUpRestrictedException if the user provides invalid username/email
+     * @throws ServiceOverloadedException if the password hashing pool or the auth bulkhead is saturated
      */
     @RequestMapping(method = RequestMethod.POST, path = "/user/signup", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SignupUserResponse> signup(final SignupUserRequest signupUserRequest) throws SignUpRestrictedException {
-
-        final UserEntity userEntity = new UserEntity();
-        userEntity.setUuid(UUID.randomUUID().toString());
-        userEntity.setFirstName(signupUserRequest.getFirstName());
-        userEntity.setLastName(signupUserRequest.getLastName());
-        userEntity.setUserName(signupUserRequest.getUserName());
-        userEntity.setEmail(signupUserRequest.getEmailAddress());
-        userEntity.setPassword(signupUserRequest.getPassword());
-        userEntity.setSalt("1235qweqwer");
-        userEntity.setCountry(signupUserRequest.getCountry());
-        userEntity.setAboutMe(signupUserRequest.getAboutMe());
-        userEntity.setDob(signupUserRequest.getDob());
-        userEntity.setRole("admin");
-        userEntity.setContactnumber(signupUserRequest.getContactNumber());
-        final UserEntity createdUserEntity = userBusinessService.signup(userEntity);
-        SignupUserResponse userResponse = new SignupUserResponse().id(createdUserEntity.getUuid()).status("REGISTERED");
+    public CompletableFuture<ResponseEntity<SignupUserResponse>> signup(final SignupUserRequest signupUserRequest) {
+        return requestExecutor.supply(Bulkhead.AUTH, () -> {
+            final UserEntity userEntity = new UserEntity();
+            userEntity.setUuid(idGenerator.nextId());
+            userEntity.setFirstName(signupUserRequest.getFirstName());
+            userEntity.setLastName(signupUserRequest.getLastName());
+            userEntity.setUserName(signupUserRequest.getUserName());
+            userEntity.setEmail(signupUserRequest.getEmailAddress());
+            userEntity.setPassword(signupUserRequest.getPassword());
+            userEntity.setSalt("1235qweqwer");
+            userEntity.setCountry(signupUserRequest.getCountry());
+            userEntity.setAboutMe(signupUserRequest.getAboutMe());
+            userEntity.setDob(signupUserRequest.getDob());
+            userEntity.setRole("admin");
+            userEntity.setContactnumber(signupUserRequest.getContactNumber());
+            final UserEntity createdUserEntity = userBusinessService.signup(userEntity);
+            SignupUserResponse userResponse = new SignupUserResponse().id(createdUserEntity.getUuid()).status("REGISTERED");
 
-        return new ResponseEntity<SignupUserResponse>(userResponse, HttpStatus.CREATED);
+            return new ResponseEntity<SignupUserResponse>(userResponse, HttpStatus.CREATED);
+        });
     }
 
     @RequestMapping(method = RequestMethod.POST, path = "/user/signin", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SigninResponse> signIn(@RequestHeader("authorization") final String authorization) throws AuthenticationFailedException {
-        UserAuthEntity userAuthEntity = userBusinessService.signIn(authorization);
-        UserEntity userEntity = userAuthEntity.getUser();
-        SigninResponse signinResponse = new SigninResponse().id(userEntity.getUuid()).message("SIGNED IN SUCCESSFULLY");
-        HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.add("access_token", userAuthEntity.getAccessToken());
-        return new ResponseEntity<SigninResponse>(signinResponse, httpHeaders, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<SigninResponse>> signIn(@RequestHeader("authorization") final String authorization) {
+        return requestExecutor.supply(Bulkhead.AUTH, () -> {
+            UserAuthEntity userAuthEntity = userBusinessService.signIn(authorization);
+            UserEntity userEntity = userAuthEntity.getUser();
+            SigninResponse signinResponse = new SigninResponse().id(userEntity.getUuid()).message("SIGNED IN SUCCESSFULLY");
+            HttpHeaders httpHeaders = new HttpHeaders();
+            httpHeaders.add("access_token", userAuthEntity.getAccessToken());
+            return new ResponseEntity<SigninResponse>(signinResponse, httpHeaders, HttpStatus.OK);
+        });
     }
 
     @RequestMapping(method = RequestMethod.POST, path = "/user/signout", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<SignoutResponse> signOut(@RequestHeader("authorization") final String authorization) throws SignOutRestrictedException {
-        String uuid = userBusinessService.getUserUUID(authorization);
-        SignoutResponse signoutResponse = new SignoutResponse();
-        signoutResponse.setId(uuid);
-        signoutResponse.setMessage("SIGNED OUT SUCCESSFULLY");
-        return new ResponseEntity<SignoutResponse>(signoutResponse, HttpStatus.OK);
+    public CompletableFuture<ResponseEntity<SignoutResponse>> signOut(@RequestHeader("authorization") final String authorization) {
+        return requestExecutor.supply(Bulkhead.AUTH, () -> {
+            String uuid = userBusinessService.getUserUUID(authorization);
+            SignoutResponse signoutResponse = new SignoutResponse();
+            signoutResponse.setId(uuid);
+            signoutResponse.setMessage("SIGNED OUT SUCCESSFULLY");
+            return new ResponseEntity<SignoutResponse>(signoutResponse, HttpStatus.OK);
+        });
     }
 }
@@ -3,6 +3,10 @@ package com.upgrad.quora.api.exception;
 import com.upgrad.quora.api.model.ErrorResponse;
 import com.upgrad.quora.service.exception.*;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -12,8 +16,12 @@ import org.springframework.web.context.request.WebRequest;
 @ControllerAdvice
 public class RestExceptionHandler {
 
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
     @ExceptionHandler(SignUpRestrictedException.class)
     public ResponseEntity<ErrorResponse> signUpRestrictedException(SignUpRestrictedException exe, WebRequest request){
+        countError(exe.getCode(), HttpStatus.CONFLICT);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.CONFLICT
         );
@@ -21,6 +29,7 @@ public class RestExceptionHandler {
 
     @ExceptionHandler(UserNotFoundException.class)
     public ResponseEntity<ErrorResponse> userNotFoundException(UserNotFoundException exception, WebRequest request){
+        countError(exception.getCode(), HttpStatus.NOT_FOUND);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.NOT_FOUND
         );
@@ -28,6 +37,7 @@ public class RestExceptionHandler {
 
     @ExceptionHandler(AuthorizationFailedException.class)
     public ResponseEntity<ErrorResponse> authorizationFailedException(AuthorizationFailedException exception, WebRequest request){
+        countError(exception.getCode(), HttpStatus.FORBIDDEN);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.FORBIDDEN
         );
@@ -35,6 +45,15 @@ public class RestExceptionHandler {
 
     @ExceptionHandler(AuthenticationFailedException.class)
     public ResponseEntity<ErrorResponse> authorizationFailedException(AuthenticationFailedException exception, WebRequest request) {
+        countError(exception.getCode(), HttpStatus.UNAUTHORIZED);
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.UNAUTHORIZED
+        );
+    }
+
+    @ExceptionHandler(SignOutRestrictedException.class)
+    public ResponseEntity<ErrorResponse> signOutRestrictedException(SignOutRestrictedException exception, WebRequest request) {
+        countError(exception.getCode(), HttpStatus.UNAUTHORIZED);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.UNAUTHORIZED
         );
@@ -42,6 +61,7 @@ public class RestExceptionHandler {
 
     @ExceptionHandler(InvalidQuestionException.class)
     public ResponseEntity<ErrorResponse> invalidQuestionException(InvalidQuestionException exception, WebRequest request) {
+        countError(exception.getCode(), HttpStatus.NOT_FOUND);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.NOT_FOUND
         );
@@ -57,8 +77,48 @@ public class RestExceptionHandler {
      */
     @ExceptionHandler(AnswerNotFoundException.class)
     public ResponseEntity<ErrorResponse> answerNotFoundException(AnswerNotFoundException exe, WebRequest request) {
+        countError(exe.getCode(), HttpStatus.NOT_FOUND);
         return new ResponseEntity<ErrorResponse>(
                 new ErrorResponse().code(exe.getCode()).message(exe.getErrorMessage()), HttpStatus.NOT_FOUND
         );
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(InvalidRequestException.class)
+    public ResponseEntity<ErrorResponse> invalidRequestException(InvalidRequestException exception, WebRequest request) {
+        countError(exception.getCode(), HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), HttpStatus.BAD_REQUEST
+        );
+    }
+
+    /**
+     * Global Exception handler for saturated resources such as the password hashing pool.
+     * Responds with 503 and a Retry-After header so that clients back off instead of retrying immediately.
+     *
+     * @param exception The ServiceOverloadedException occurred in the application
+     * @param request   The web request information if any to be used while framing the response
+     * @return The Error Response consisting of the Http status code, Retry-After header and an error message
+     */
+    @ExceptionHandler(ServiceOverloadedException.class)
+    public ResponseEntity<ErrorResponse> serviceOverloadedException(ServiceOverloadedException exception, WebRequest request) {
+        HttpHeaders httpHeaders = new HttpHeaders();
+        httpHeaders.add(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()));
+        countError(exception.getCode(), HttpStatus.SERVICE_UNAVAILABLE);
+        return new ResponseEntity<ErrorResponse>(
+                new ErrorResponse().code(exception.getCode()).message(exception.getErrorMessage()), httpHeaders, HttpStatus.SERVICE_UNAVAILABLE
+        );
+    }
+
+    /**
+     * Counts the error responses per error code and HTTP status (quora.errors).
+     *
+     * @param code   The error code of the exception
+     * @param status The HTTP status it is answered with
+     */
+    private void countError(final String code, final HttpStatus status) {
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            registry.counter("quora.errors", "code", code, "status", String.valueOf(status.value())).increment();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.upgrad.quora.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.model.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sheds load with 503 and Retry-After once the endpoints have more requests in flight than their concurrency limit,
+ * instead of letting them queue in the container while the database is slow.
+ * <p>
+ * The read endpoints (GET), the auth endpoints (sign up, sign in and sign out, whose latency is mostly password
+ * hashing) and the write endpoints (every other method: create, edit, delete) have separate limits, so that slow
+ * writes do not shed reads, nor slow hashing writes, and the other way around. Each limit adapts to the latency of the
+ * requests it lets through (AIMD): a request slower than the latency target of its endpoints cuts the limit by the
+ * backoff ratio, once per round trip: the requests already in flight at the last cut do not cut it again. A request
+ * within the target while the limit is at least half used raises the limit by one over the limit, about one per
+ * limit's worth of requests. The limit of an asynchronous request is held until its response is complete.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    public static final String LIMIT_GAUGE = "quora.concurrency-limit.limit";
+
+    public static final String IN_FLIGHT_GAUGE = "quora.concurrency-limit.in-flight";
+
+    public static final String REJECTED_COUNTER = "quora.concurrency-limit.rejected";
+
+    @Value("${quora.concurrency-limit.enabled:true}")
+    private boolean enabled;
+
+    // Paths that are not endpoints of the application, such as actuator and Swagger
+    @Value("${quora.concurrency-limit.exempt-prefixes:/actuator,/swagger,/v2/api-docs,/webjars}")
+    private String[] exemptPrefixes;
+
+    // Endpoints whose latency grows with the size of the request or response by design; they hold the limit like any
+    // other but do not adapt it
+    @Value("${quora.concurrency-limit.unsampled-endpoints:/question/import,/question/stream}")
+    private String[] unsampledEndpoints;
+
+    @Value("${quora.concurrency-limit.read.initial-limit:50}")
+    private int readInitialLimit;
+
+    @Value("${quora.concurrency-limit.read.min-limit:4}")
+    private int readMinLimit;
+
+    @Value("${quora.concurrency-limit.read.max-limit:500}")
+    private int readMaxLimit;
+
+    @Value("${quora.concurrency-limit.read.latency-target-ms:500}")
+    private long readLatencyTargetMillis;
+
+    @Value("${quora.concurrency-limit.write.initial-limit:20}")
+    private int writeInitialLimit;
+
+    @Value("${quora.concurrency-limit.write.min-limit:2}")
+    private int writeMinLimit;
+
+    @Value("${quora.concurrency-limit.write.max-limit:200}")
+    private int writeMaxLimit;
+
+    @Value("${quora.concurrency-limit.write.latency-target-ms:1000}")
+    private long writeLatencyTargetMillis;
+
+    // Endpoints of the auth limit rather than of the write limit
+    @Value("${quora.concurrency-limit.auth-endpoints:/user/signup,/user/signin,/user/signout}")
+    private String[] authEndpoints;
+
+    @Value("${quora.concurrency-limit.auth.initial-limit:20}")
+    private int authInitialLimit;
+
+    @Value("${quora.concurrency-limit.auth.min-limit:2}")
+    private int authMinLimit;
+
+    @Value("${quora.concurrency-limit.auth.max-limit:200}")
+    private int authMaxLimit;
+
+    @Value("${quora.concurrency-limit.auth.latency-target-ms:2000}")
+    private long authLatencyTargetMillis;
+
+    @Value("${quora.concurrency-limit.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    @Value("${quora.concurrency-limit.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private Limit readLimit;
+
+    private Limit writeLimit;
+
+    private Limit authLimit;
+
+    @Override
+    protected void initFilterBean() {
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        readLimit = new Limit("read", readInitialLimit, readMinLimit, readMaxLimit, readLatencyTargetMillis,
+                backoffRatio, registry);
+        writeLimit = new Limit("write", writeInitialLimit, writeMinLimit, writeMaxLimit, writeLatencyTargetMillis,
+                backoffRatio, registry);
+        authLimit = new Limit("auth", authInitialLimit, authMinLimit, authMaxLimit, authLatencyTargetMillis,
+                backoffRatio, registry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        final String uri = request.getRequestURI();
+        final int contextLength = request.getContextPath().length();
+        for (String prefix : exemptPrefixes) {
+            if (uri.startsWith(prefix, contextLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        final Limit limit = limitOf(request);
+        if (!limit.tryAcquire()) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+            objectMapper.writeValue(response.getOutputStream(),
+                    new ErrorResponse().code("SVC-004").message("Service is overloaded, try again later"));
+            return;
+        }
+        final long start = System.nanoTime();
+        final boolean sampled = isSampled(request);
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted();
+        } finally {
+            if (!async) {
+                release(limit, sampled, start);
+            }
+        }
+        if (async) {
+            // Served by the RequestExecutor, whose work holds the limit until the response is complete
+            request.getAsyncContext().addListener(new AsyncListener() {
+                @Override
+                public void onComplete(final AsyncEvent event) {
+                    release(limit, sampled, start);
+                }
+
+                @Override
+                public void onTimeout(final AsyncEvent event) {
+                }
+
+                @Override
+                public void onError(final AsyncEvent event) {
+                }
+
+                @Override
+                public void onStartAsync(final AsyncEvent event) {
+                }
+            });
+        }
+    }
+
+    private static void release(final Limit limit, final boolean sampled, final long start) {
+        if (sampled) {
+            limit.release(start, System.nanoTime());
+        } else {
+            limit.release();
+        }
+    }
+
+    private Limit limitOf(final HttpServletRequest request) {
+        final String method = request.getMethod();
+        if (HttpMethod.GET.matches(method) || HttpMethod.HEAD.matches(method)) {
+            return readLimit;
+        }
+        return isEndpoint(request, authEndpoints) ? authLimit : writeLimit;
+    }
+
+    private boolean isSampled(final HttpServletRequest request) {
+        return !isEndpoint(request, unsampledEndpoints);
+    }
+
+    private static boolean isEndpoint(final HttpServletRequest request, final String[] endpoints) {
+        final String uri = request.getRequestURI();
+        final int contextLength = request.getContextPath().length();
+        for (String endpoint : endpoints) {
+            if (uri.length() == contextLength + endpoint.length() && uri.startsWith(endpoint, contextLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The concurrency limit of the read, the auth or the write endpoints.
+     */
+    static final class Limit {
+        private final int minLimit;
+        private final int maxLimit;
+        private final long latencyTargetNanos;
+        private final double backoffRatio;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Counter rejected;
+        // Guarded by this for updates, read without locking by tryAcquire
+        private volatile double limit;
+        // Guarded by this: when the limit was last cut, requests started before then do not cut it again
+        private long lastDecreaseNanos = System.nanoTime();
+
+        Limit(final String endpoints, final int initialLimit, final int minLimit, final int maxLimit,
+              final long latencyTargetMillis, final double backoffRatio, final MeterRegistry registry) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+            this.backoffRatio = backoffRatio;
+            this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+            if (registry != null) {
+                Gauge.builder(LIMIT_GAUGE, this, current -> Math.floor(current.limit))
+                        .tag("endpoints", endpoints)
+                        .register(registry);
+                Gauge.builder(IN_FLIGHT_GAUGE, inFlight, AtomicInteger::get)
+                        .tag("endpoints", endpoints)
+                        .register(registry);
+                rejected = Counter.builder(REJECTED_COUNTER).tag("endpoints", endpoints).register(registry);
+            } else {
+                rejected = null;
+            }
+        }
+
+        int limit() {
+            return (int) limit;
+        }
+
+        boolean tryAcquire() {
+            while (true) {
+                final int current = inFlight.get();
+                if (current >= (int) limit) {
+                    if (rejected != null) {
+                        rejected.increment();
+                    }
+                    return false;
+                }
+                if (inFlight.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * Releases a request that is not to adapt the limit.
+         */
+        void release() {
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * Releases a request and adapts the limit to its latency.
+         *
+         * @param startNanos System.nanoTime() when the request was admitted.
+         * @param endNanos System.nanoTime() when the request completed.
+         */
+        void release(final long startNanos, final long endNanos) {
+            final int current = inFlight.getAndDecrement();
+            synchronized (this) {
+                if (endNanos - startNanos > latencyTargetNanos) {
+                    // The requests in flight at the last cut saw the same overload, they do not cut again
+                    if (startNanos - lastDecreaseNanos >= 0) {
+                        limit = Math.max(minLimit, limit * backoffRatio);
+                        lastDecreaseNanos = endNanos;
+                    }
+                } else if (current * 2 >= limit) {
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+        }
+    }
+}
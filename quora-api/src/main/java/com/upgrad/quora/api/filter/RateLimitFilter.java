@@ -0,0 +1,277 @@
+package com.upgrad.quora.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.model.ErrorResponse;
+import com.upgrad.quora.service.business.AccessTokenService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Limits the rate of requests a single client can send to the configured routes, answering 429 with Retry-After once
+ * its bucket is empty.
+ * <p>
+ * Each route has a fixed array of token buckets for its key, the access token (the credentials for sign in) or the
+ * client IP, and a client is hashed onto one of them. Two clients sharing a bucket share its rate, which the number of
+ * buckets makes unlikely, in exchange for memory that does not grow with the number of clients. A bucket is the time
+ * at which it will be full again (GCRA), updated with a single compare-and-set, so letting a request through takes no
+ * lock. A request matching several routes is checked against all of their buckets before a token is taken from any,
+ * so that a request rejected by one route does not use up the rate of the others.
+ * <p>
+ * The ip key is {@link HttpServletRequest#getRemoteAddr()}. Behind a reverse proxy that is the address of the proxy,
+ * shared by every client, unless server.use-forward-headers is set: Tomcat then takes the client address from
+ * X-Forwarded-For, only for requests from server.tomcat.internal-proxies so that clients cannot pick their own.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    public static final String REJECTED_COUNTER = "quora.rate-limit.rejected";
+
+    private static final String TOKEN_KEY = "token";
+
+    private static final String IP_KEY = "ip";
+
+    @Value("${quora.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    // "<path> <token|ip> <requests per minute> <burst>", a path ending with /** covers everything below it
+    @Value("${quora.rate-limit.routes:/user/signin ip 60 20,/user/signup ip 20 10,/question/all token 60 20,/question/all ip 600 100}")
+    private String[] routeSpecs;
+
+    // Buckets per route, rounded up to a power of two
+    @Value("${quora.rate-limit.buckets:4096}")
+    private int buckets;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final Map<String, Route[]> exactRoutes = new HashMap<>();
+
+    private final List<Route> prefixRoutes = new ArrayList<>();
+
+    // Origin of the bucket times, so that they are never negative
+    private final long startNanos = System.nanoTime();
+
+    @Override
+    protected void initFilterBean() {
+        final int bucketCount = Integer.highestOneBit(Math.max(1, buckets - 1)) << 1;
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        for (String spec : routeSpecs) {
+            final String[] fields = spec.trim().split("\\s+");
+            if (fields.length != 4 || !(TOKEN_KEY.equals(fields[1]) || IP_KEY.equals(fields[1]))) {
+                throw new IllegalStateException("quora.rate-limit.routes entry must be '<path> <token|ip> <requests per minute> <burst>': " + spec);
+            }
+            final Route route = new Route(fields[0], IP_KEY.equals(fields[1]), Integer.parseInt(fields[2]),
+                    Integer.parseInt(fields[3]), bucketCount, registry);
+            if (route.prefix != null) {
+                prefixRoutes.add(route);
+            } else {
+                final Route[] routes = exactRoutes.get(route.path);
+                final Route[] added = routes == null ? new Route[1] : Arrays.copyOf(routes, routes.length + 1);
+                added[added.length - 1] = route;
+                exactRoutes.put(route.path, added);
+            }
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(final HttpServletRequest request) {
+        return !enabled;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        final String uri = request.getRequestURI();
+        final int contextLength = request.getContextPath().length();
+        final String path = contextLength == 0 ? uri : uri.substring(contextLength);
+        final long now = System.nanoTime() - startNanos;
+        final Route[] routes = routes(path);
+        if (routes == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        // Every bucket is checked before a token is taken from any of them
+        final int[] buckets = new int[routes.length];
+        long waitNanos = 0;
+        for (int i = 0; i < routes.length; i++) {
+            buckets[i] = routes[i].bucket(request);
+            final long routeWaitNanos = routes[i].waitNanos(buckets[i], now);
+            if (routeWaitNanos > 0) {
+                routes[i].reject();
+                waitNanos = Math.max(waitNanos, routeWaitNanos);
+            }
+        }
+        if (waitNanos == 0) {
+            waitNanos = acquire(routes, buckets, now);
+        }
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse().code("SVC-003").message("Too many requests from this client, try again later"));
+    }
+
+    /**
+     * @return the routes covering the path, null if there are none.
+     */
+    private Route[] routes(final String path) {
+        final Route[] exact = exactRoutes.get(path);
+        Route[] routes = exact;
+        for (int i = 0; i < prefixRoutes.size(); i++) {
+            final Route route = prefixRoutes.get(i);
+            if (path.startsWith(route.prefix)) {
+                routes = routes == null ? new Route[1] : Arrays.copyOf(routes, routes.length + 1);
+                routes[routes.length - 1] = route;
+            }
+        }
+        return routes;
+    }
+
+    /**
+     * Takes a token from the bucket of every route, giving back those already taken if another request emptied one of
+     * the buckets since they were checked.
+     *
+     * @return 0 if the request is let through, else how long the client has to wait for a token.
+     */
+    private static long acquire(final Route[] routes, final int[] buckets, final long now) {
+        for (int i = 0; i < routes.length; i++) {
+            final long waitNanos = routes[i].tryAcquire(buckets[i], now);
+            if (waitNanos > 0) {
+                routes[i].reject();
+                for (int j = 0; j < i; j++) {
+                    routes[j].release(buckets[j]);
+                }
+                return waitNanos;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * The token buckets of one route and key.
+     */
+    private static final class Route {
+        private final String path;
+        // Path without the trailing ** for a route covering everything below it, else null
+        private final String prefix;
+        private final boolean byIp;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final AtomicLongArray fullAt;
+        private final int mask;
+        private final Counter rejected;
+
+        private Route(final String path, final boolean byIp, final int requestsPerMinute, final int burst,
+                      final int bucketCount, final MeterRegistry registry) {
+            this.path = path;
+            this.prefix = path.endsWith("/**") ? path.substring(0, path.length() - 2) : null;
+            this.byIp = byIp;
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / requestsPerMinute;
+            this.burstNanos = intervalNanos * burst;
+            this.fullAt = new AtomicLongArray(bucketCount);
+            this.mask = bucketCount - 1;
+            this.rejected = registry == null ? null : Counter.builder(REJECTED_COUNTER)
+                    .tag("route", path)
+                    .tag("key", byIp ? IP_KEY : TOKEN_KEY)
+                    .register(registry);
+        }
+
+        /**
+         * @return the bucket of the client, or -1 for a request without an access token, which is left to the IP
+         * routes and to the endpoint, which rejects it.
+         */
+        private int bucket(final HttpServletRequest request) {
+            final String key;
+            if (byIp) {
+                key = request.getRemoteAddr();
+            } else {
+                final String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+                if (authorization == null) {
+                    return -1;
+                }
+                key = AccessTokenService.parseBearerToken(authorization);
+            }
+            int hash = key.hashCode();
+            hash ^= hash >>> 16;
+            hash *= 0x85ebca6b;
+            hash ^= hash >>> 13;
+            return hash & mask;
+        }
+
+        /**
+         * @return 0 if the bucket has a token, else how long the client has to wait for one.
+         */
+        private long waitNanos(final int bucket, final long now) {
+            if (bucket < 0) {
+                return 0;
+            }
+            return Math.max(0, Math.max(fullAt.get(bucket), now) + intervalNanos - now - burstNanos);
+        }
+
+        /**
+         * @return 0 if a token was taken from the bucket, else how long the client has to wait for one.
+         */
+        private long tryAcquire(final int bucket, final long now) {
+            if (bucket < 0) {
+                return 0;
+            }
+            while (true) {
+                final long current = fullAt.get(bucket);
+                final long next = Math.max(current, now) + intervalNanos;
+                if (next - now > burstNanos) {
+                    return next - now - burstNanos;
+                }
+                if (fullAt.compareAndSet(bucket, current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        /**
+         * Gives back a token taken by {@link #tryAcquire}. Once the bucket has filled up in the meantime this moves
+         * its full time further into the past, which gives no more than a full bucket.
+         */
+        private void release(final int bucket) {
+            if (bucket >= 0) {
+                fullAt.addAndGet(bucket, -intervalNanos);
+            }
+        }
+
+        private void reject() {
+            if (rejected != null) {
+                rejected.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.upgrad.quora.api.filter;
+
+import com.upgrad.quora.service.metrics.RequestStatements;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the SQL statements issued by every request and logs a warning for a request over its budget: more
+ * statements than allowed, the same statement repeated more than allowed (the N+1 pattern), or more time than allowed.
+ * The warning names the endpoint and lists the statements by DAO method and SQL, bind parameters as ?.
+ * <p>
+ * With fail-on-exceed set, as in the controller tests, a request over its statement budget fails with
+ * IllegalStateException instead. Time overruns are only logged since test timings are not reliable.
+ */
+@Component
+public class StatementBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StatementBudgetFilter.class);
+
+    // Statements listed in the warning, most repeated first
+    private static final int REPORTED_SHAPES = 5;
+
+    @Value("${quora.statement-budget.max-statements:20}")
+    private int maxStatements;
+
+    @Value("${quora.statement-budget.max-repeats:5}")
+    private int maxRepeats;
+
+    @Value("${quora.statement-budget.max-millis:1000}")
+    private long maxMillis;
+
+    @Value("${quora.statement-budget.slow-statement-millis:200}")
+    private long slowStatementMillis;
+
+    @Value("${quora.statement-budget.fail-on-exceed:false}")
+    private boolean failOnExceed;
+
+    // Endpoints whose statement count grows with the size of the request by design
+    @Value("${quora.statement-budget.exempt-endpoints:/question/import}")
+    private String[] exemptEndpoints;
+
+    private Set<String> exempt;
+
+    @Override
+    protected void initFilterBean() {
+        exempt = new HashSet<>(Arrays.asList(exemptEndpoints));
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response, final FilterChain filterChain)
+            throws ServletException, IOException {
+        final RequestStatements statements = RequestStatements.begin(slowStatementMillis);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestStatements.restore(null);
+        }
+        if (!request.isAsyncStarted()) {
+            check(request, statements, failOnExceed);
+            return;
+        }
+        // Served by the RequestExecutor, which collects its statements into the same RequestStatements
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(final AsyncEvent event) {
+                check(request, statements, false);
+            }
+
+            @Override
+            public void onTimeout(final AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(final AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(final AsyncEvent event) {
+            }
+        });
+    }
+
+    private void check(final HttpServletRequest request, final RequestStatements statements, final boolean fail) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        final String path = pattern != null ? pattern.toString() : request.getRequestURI();
+        final int count = statements.getStatementCount();
+        final long elapsed = statements.getElapsedMillis();
+        final List<RequestStatements.Shape> shapes = statements.getShapes();
+        final int repeats = shapes.isEmpty() ? 0 : shapes.get(0).getCount();
+        final boolean overStatements = !exempt.contains(path) && (count > maxStatements || repeats > maxRepeats);
+        if (!overStatements && elapsed <= maxMillis) {
+            return;
+        }
+        final String message = String.format(
+                "%s %s issued %d statements (%d ms of %d ms) over its budget of %d statements, %d repeats, %d ms: %s",
+                request.getMethod(), path, count, statements.getStatementMillis(), elapsed, maxStatements, maxRepeats,
+                maxMillis, shapes.subList(0, Math.min(REPORTED_SHAPES, shapes.size())));
+        if (fail && overStatements) {
+            throw new IllegalStateException(message);
+        }
+        LOGGER.warn(message);
+    }
+}
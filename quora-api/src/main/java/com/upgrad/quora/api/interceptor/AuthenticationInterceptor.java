@@ -0,0 +1,45 @@
+package com.upgrad.quora.api.interceptor;
+
+import com.upgrad.quora.service.business.AccessTokenService;
+import com.upgrad.quora.service.business.UserPrincipal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Reads the authorization header of a request once, before its endpoint runs, into the {@link UserPrincipal} handed to
+ * the services. The principal is kept as a request attribute, so that the dispatch of an asynchronous result reuses it
+ * and every endpoint of the request resolves the user session at most once. Sign in and sign out read the header
+ * themselves.
+ */
+@Component
+public class AuthenticationInterceptor implements HandlerInterceptor {
+
+    private static final String PRINCIPAL_ATTRIBUTE = AuthenticationInterceptor.class.getName() + ".PRINCIPAL";
+
+    @Autowired
+    private AccessTokenService accessTokenService;
+
+    @Override
+    public boolean preHandle(final HttpServletRequest request, final HttpServletResponse response, final Object handler) {
+        if (request.getAttribute(PRINCIPAL_ATTRIBUTE) == null) {
+            final String authorization = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (authorization != null) {
+                request.setAttribute(PRINCIPAL_ATTRIBUTE, accessTokenService.getPrincipal(authorization));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param request request being served.
+     * @return the principal of the request, null if it has no authorization header.
+     */
+    public static UserPrincipal getPrincipal(final HttpServletRequest request) {
+        return (UserPrincipal) request.getAttribute(PRINCIPAL_ATTRIBUTE);
+    }
+}
@@ -0,0 +1,70 @@
+package com.upgrad.quora.api.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The test database stands in for its own replica, which the health check sees with no lag
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "quora.datasource.replicas.urls=${spring.datasource.url}",
+        "quora.datasource.replicas.check-interval-ms=0"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingConfigurationTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    //This test case passes when the routing data source is the only data source once replicas are configured.
+    @Test
+    public void routingDataSourceIsTheDataSource() {
+        assertTrue(dataSource instanceof ReplicaRoutingDataSource);
+        assertEquals(1, ((ReplicaRoutingDataSource) dataSource).getReplicaCount());
+        assertEquals(0, ((ReplicaRoutingDataSource) dataSource).getLagMillis(0));
+    }
+
+    //This test case passes when a listing is read from the replica while the session of its access token is read from the primary.
+    @Test
+    public void listingReadsReplicaAndSessionReadsPrimary() throws Exception {
+        final long primaryBefore = connectionsUsed(DataSourceConfiguration.POOL_NAME);
+        final long replicaBefore = connectionsUsed(DataSourceConfiguration.POOL_NAME + "-replica-0");
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        assertEquals(1, connectionsUsed(DataSourceConfiguration.POOL_NAME) - primaryBefore);
+        assertEquals(1, connectionsUsed(DataSourceConfiguration.POOL_NAME + "-replica-0") - replicaBefore);
+    }
+
+    //This test case passes when a signed out access token is rejected even though the listing itself would be read from the replica.
+    @Test
+    public void signedOutSessionIsReadFromPrimary() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    private long connectionsUsed(final String pool) {
+        final Timer usage = meterRegistry.find("hikaricp.connections.usage").tag("pool", pool).timer();
+        return usage == null ? 0 : usage.count();
+    }
+}
@@ -0,0 +1,137 @@
+package com.upgrad.quora.api.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+
+    private DataSource replica0;
+
+    private DataSource replica1;
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        primary = stub(0);
+        replica0 = stub(0);
+        replica1 = stub(0);
+        // No scheduled checks, the tests run them with checkReplicas()
+        routingDataSource = new ReplicaRoutingDataSource(primary, Arrays.asList(replica0, replica1), 1000, 0);
+        routingDataSource.setDefaultAutoCommit(true);
+        routingDataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        routingDataSource.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    //This test case passes when the connections of transactions that are not read-only all come from the primary.
+    @Test
+    public void writesGoToPrimary() {
+        assertSame(primary, routingDataSource.determineTargetDataSource());
+        assertSame(primary, routingDataSource.determineTargetDataSource());
+    }
+
+    //This test case passes when the connections of read-only transactions go round-robin to the replicas.
+    @Test
+    public void readsGoRoundRobinToReplicas() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        final DataSource first = routingDataSource.determineTargetDataSource();
+        final DataSource second = routingDataSource.determineTargetDataSource();
+        assertEquals(2, routingDataSource.getReplicaCount());
+        assertSame(first == replica0 ? replica1 : replica0, second);
+        assertSame(first, routingDataSource.determineTargetDataSource());
+    }
+
+    //This test case passes when the physical connection of a read-only transaction is only fetched, from a replica, on its first statement.
+    @Test
+    public void readConnectionIsFetchedOnFirstStatement() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routingDataSource.getConnection()) {
+            verify(primary, never()).getConnection();
+            connection.createStatement();
+        }
+        verify(primary, never()).getConnection();
+    }
+
+    //This test case passes when a replica lagging more than the maximum gets no reads until it has caught up.
+    @Test
+    public void laggingReplicaIsSkipped() throws SQLException {
+        lag(replica0, 5000);
+        routingDataSource.checkReplicas();
+        assertEquals(5000, routingDataSource.getLagMillis(0));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        for (int i = 0; i < 4; i++) {
+            assertSame(replica1, routingDataSource.determineTargetDataSource());
+        }
+        lag(replica0, 10);
+        routingDataSource.checkReplicas();
+        final DataSource first = routingDataSource.determineTargetDataSource();
+        assertSame(first == replica0 ? replica1 : replica0, routingDataSource.determineTargetDataSource());
+    }
+
+    //This test case passes when a replica failing its health check gets no reads until a later check succeeds.
+    @Test
+    public void failedReplicaIsSkipped() throws SQLException {
+        when(replica1.getConnection()).thenThrow(new SQLException("connection refused"));
+        routingDataSource.checkReplicas();
+        assertEquals(-1, routingDataSource.getLagMillis(1));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        for (int i = 0; i < 4; i++) {
+            assertSame(replica0, routingDataSource.determineTargetDataSource());
+        }
+    }
+
+    //This test case passes when reads fail over to the primary once no replica is usable, and go back to a replica once it recovers.
+    @Test
+    public void readsFailOverToPrimary() throws SQLException {
+        lag(replica0, 5000);
+        when(replica1.getConnection()).thenThrow(new SQLException("connection refused"));
+        routingDataSource.checkReplicas();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(primary, routingDataSource.determineTargetDataSource());
+        assertSame(primary, routingDataSource.determineTargetDataSource());
+        lag(replica0, 0);
+        routingDataSource.checkReplicas();
+        assertSame(replica0, routingDataSource.determineTargetDataSource());
+    }
+
+    private static DataSource stub(final long lagMillis) throws SQLException {
+        final DataSource dataSource = mock(DataSource.class);
+        lag(dataSource, lagMillis);
+        return dataSource;
+    }
+
+    private static void lag(final DataSource dataSource, final long lagMillis) throws SQLException {
+        final Connection connection = mock(Connection.class);
+        final Statement statement = mock(Statement.class);
+        final ResultSet resultSet = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong(1)).thenReturn(lagMillis);
+    }
+}
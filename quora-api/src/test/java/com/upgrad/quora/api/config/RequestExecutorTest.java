@@ -0,0 +1,134 @@
+package com.upgrad.quora.api.config;
+
+import com.upgrad.quora.api.config.RequestExecutor.Bulkhead;
+import com.upgrad.quora.service.exception.ServiceOverloadedException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class RequestExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    private RequestExecutor requestExecutor;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        if (requestExecutor != null) {
+            requestExecutor.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private RequestExecutor requestExecutor(final String mode) {
+        requestExecutor = new RequestExecutor();
+        ReflectionTestUtils.setField(requestExecutor, "mode", mode);
+        ReflectionTestUtils.setField(requestExecutor, "meterRegistry", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(requestExecutor, "maxThreads", 10);
+        ReflectionTestUtils.setField(requestExecutor, "authThreadShare", 0.2);
+        ReflectionTestUtils.setField(requestExecutor, "writeThreadShare", 0.2);
+        ReflectionTestUtils.setField(requestExecutor, "readThreadShare", 0.2);
+        ReflectionTestUtils.setField(requestExecutor, "authPoolSize", 1);
+        ReflectionTestUtils.setField(requestExecutor, "authQueueCapacity", 1);
+        ReflectionTestUtils.setField(requestExecutor, "writePoolSize", 1);
+        ReflectionTestUtils.setField(requestExecutor, "writeQueueCapacity", 1);
+        ReflectionTestUtils.setField(requestExecutor, "readPoolSize", 1);
+        ReflectionTestUtils.setField(requestExecutor, "readQueueCapacity", 1);
+        ReflectionTestUtils.setField(requestExecutor, "retryAfterSeconds", 1L);
+        requestExecutor.init();
+        return requestExecutor;
+    }
+
+    /**
+     * Fills the read bulkhead with two requests that wait for the release latch. In servlet mode they run on the
+     * calling thread, so they are made from threads of their own.
+     */
+    private List<CompletableFuture<String>> saturateReads(final boolean servletThreads) throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(servletThreads ? 2 : 1);
+        final RequestExecutor.Work<String> work = () -> {
+            started.countDown();
+            release.await();
+            return "read";
+        };
+        final List<CompletableFuture<String>> blocked = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            if (servletThreads) {
+                blocked.add(CompletableFuture.supplyAsync(() -> requestExecutor.supply(Bulkhead.READ, work), callers)
+                        .thenCompose(future -> future));
+            } else {
+                blocked.add(requestExecutor.supply(Bulkhead.READ, work));
+            }
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return blocked;
+    }
+
+    private static void assertOverloaded(final CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the bulkhead to reject the request");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServiceOverloadedException);
+            assertEquals("SVC-002", ((ServiceOverloadedException) e.getCause()).getCode());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    //This test case passes when, in servlet mode, a read bulkhead holding its share of the Tomcat threads rejects further reads with SVC-002 while writes and sign ins are still served.
+    @Test
+    public void saturatedServletBulkheadRejectsOnlyItsOwnRequests() throws Exception {
+        requestExecutor(RequestExecutor.SERVLET_MODE);
+        // 20% of 10 threads
+        final List<CompletableFuture<String>> blocked = saturateReads(true);
+        // In servlet mode the request runs on the calling thread, so this one would never return if it were admitted
+        assertOverloaded(requestExecutor.supply(Bulkhead.READ, () -> "read"));
+        assertEquals("write", requestExecutor.supply(Bulkhead.WRITE, () -> "write").get(5, TimeUnit.SECONDS));
+        assertEquals("auth", requestExecutor.supply(Bulkhead.AUTH, () -> "auth").get(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        for (CompletableFuture<String> future : blocked) {
+            assertEquals("read", future.get(5, TimeUnit.SECONDS));
+        }
+        // The permits are given back once the calling threads return
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals("read", requestExecutor.supply(Bulkhead.READ, () -> "read").get(5, TimeUnit.SECONDS));
+    }
+
+    //This test case passes when, in async mode, a read bulkhead with its thread busy and its queue full rejects further reads with SVC-002 while writes and sign ins are still served.
+    @Test
+    public void saturatedAsyncBulkheadRejectsOnlyItsOwnRequests() throws Exception {
+        requestExecutor(RequestExecutor.ASYNC_MODE);
+        // One running on the single thread, one in the queue of capacity 1
+        final List<CompletableFuture<String>> blocked = saturateReads(false);
+        assertOverloaded(requestExecutor.supply(Bulkhead.READ, () -> "read"));
+        assertEquals("write", requestExecutor.supply(Bulkhead.WRITE, () -> "write").get(5, TimeUnit.SECONDS));
+        assertEquals("auth", requestExecutor.supply(Bulkhead.AUTH, () -> "auth").get(5, TimeUnit.SECONDS));
+
+        release.countDown();
+        for (CompletableFuture<String> future : blocked) {
+            assertEquals("read", future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("read", requestExecutor.supply(Bulkhead.READ, () -> "read").get(5, TimeUnit.SECONDS));
+    }
+}
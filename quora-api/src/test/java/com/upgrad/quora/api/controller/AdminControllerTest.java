@@ -1,16 +1,29 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -22,6 +35,38 @@ public class AdminControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private String createAnswer(String questionId, String accessToken) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "id");
+    }
+
+    private Instant answerDate(String answerId) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery("select a.date from AnswerEntity a where a.uuid = :uuid", ZonedDateTime.class)
+                    .setParameter("uuid", answerId)
+                    .getSingleResult()
+                    .toInstant();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    // Answer count and date of the latest answer of a question posted by database_uuid1, as listed
+    private void assertAnswers(String questionId, int answerCount, Instant lastAnswerAt) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Map<String, Object>> questions = JsonPath.read(response, "$[?(@.id == '" + questionId + "')]");
+        assertEquals(1, questions.size());
+        assertEquals(answerCount, questions.get(0).get("answerCount"));
+        assertEquals(lastAnswerAt, OffsetDateTime.parse(questions.get(0).get("lastAnswerAt").toString()).toInstant());
+    }
 
     //This test case passes when you try to delete the user but the JWT token entered does not exist in the database.
     @Test
@@ -48,5 +93,28 @@ public class AdminControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when deleting a user takes their answer to the question of another user out of its answer count and date of the latest answer.
+    @Test
+    public void deleteUserWhoAnsweredAnotherUsersQuestion() throws Exception {
+        String userName = "answerer_" + System.nanoTime();
+        String response = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=secret&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String userId = JsonPath.read(response, "id");
+        String accessToken = mvc.perform(MockMvcRequestBuilders.post("/user/signin").contentType(MediaType.APPLICATION_JSON_UTF8).header("authorization", Base64.getEncoder().encodeToString((userName + ":secret").getBytes(StandardCharsets.UTF_8))))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("access_token");
+        response = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String questionId = JsonPath.read(response, "id");
+        String kept = createAnswer(questionId, "database_accesstoken2");
+        String deleted = createAnswer(questionId, accessToken);
+        assertAnswers(questionId, 2, answerDate(deleted));
 
-}
\ No newline at end of file
+        mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userId).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("id").value(userId));
+        assertAnswers(questionId, 1, answerDate(kept));
+    }
+}
@@ -1,6 +1,8 @@
 package com.upgrad.quora.api.controller;
 
-
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,15 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -23,6 +34,68 @@ public class AnswerControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics startCountingStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    private String createQuestion(String accessToken) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "id");
+    }
+
+    private String createAnswer(String questionId, String accessToken) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "id");
+    }
+
+    private void createAnswers(String questionId, String... accessTokens) throws Exception {
+        for (String accessToken : accessTokens) {
+            createAnswer(questionId, accessToken);
+        }
+    }
+
+    private Instant answerDate(String answerId) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery("select a.date from AnswerEntity a where a.uuid = :uuid", ZonedDateTime.class)
+                    .setParameter("uuid", answerId)
+                    .getSingleResult()
+                    .toInstant();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    // Answer count and date of the latest answer of a question posted by database_uuid1, as listed
+    private void assertAnswers(String questionId, int answerCount, Instant lastAnswerAt) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<Map<String, Object>> questions = JsonPath.read(response, "$[?(@.id == '" + questionId + "')]");
+        assertEquals(1, questions.size());
+        assertEquals(answerCount, questions.get(0).get("answerCount"));
+        Object listedLastAnswerAt = questions.get(0).get("lastAnswerAt");
+        assertEquals(lastAnswerAt, listedLastAnswerAt == null ? null : OffsetDateTime.parse(listedLastAnswerAt.toString()).toInstant());
+    }
+
+    private long getAllAnswersStatementCount(String questionId, int answers) throws Exception {
+        Statistics statistics = startCountingStatements();
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(answers));
+        return statistics.getPrepareStatementCount();
+    }
+
 
     //This test case passes when you try to create the answer but the JWT token entered does not exist in the database.
     @Test
@@ -136,5 +209,106 @@ public class AnswerControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
 
+    //This test case passes when getting all the answers to a question runs the same number of SQL statements however many answers, by however many users, there are.
+    @Test
+    public void getAllAnswersToQuestionStatementCount() throws Exception {
+        String questionId = createQuestion("database_accesstoken1");
+        createAnswers(questionId, "database_accesstoken", "database_accesstoken1", "database_accesstoken2");
+        // access token lookup (the tokens of the test data have expired so they are never cached) + answer projection,
+        // the question was just created so it is found in the second-level cache
+        assertEquals(2, getAllAnswersStatementCount(questionId, 3));
+
+        createAnswers(questionId, "database_accesstoken", "database_accesstoken2", "database_accesstoken2");
+        assertEquals(2, getAllAnswersStatementCount(questionId, 6));
+    }
+
+    //This test case passes when you try to post many answers to a question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void createAnswersInBulk() throws Exception {
+        String questionId = createQuestion("database_accesstoken");
+        // As many answers as the ids allocated per sequence call and as a JDBC batch holds
+        StringBuilder content = new StringBuilder("{\"answers\":[");
+        for (int i = 0; i < 50; i++) {
+            content.append(i == 0 ? "" : ",").append("{\"answer\":\"my_answer_").append(i).append("\"}");
+        }
+        Statistics statistics = startCountingStatements();
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content(content.append("]}").toString()).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andExpect(MockMvcResultMatchers.jsonPath("ids.length()").value(50))
+                .andExpect(MockMvcResultMatchers.jsonPath("status").value("ANSWERS CREATED"));
+        // access token lookup, one sequence call, since whatever ids are left over from an earlier call fall short of 50,
+        // and one batched insert for all the answers, whose trigger counts them; the question is in the second-level cache
+        assertEquals(50, statistics.getEntityInsertCount());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when the answer count and the date of the latest answer listed with a question follow the answers created and deleted one at a time.
+    @Test
+    public void answerCountAfterCreateAndDelete() throws Exception {
+        String questionId = createQuestion("database_accesstoken1");
+        assertAnswers(questionId, 0, null);
+
+        String first = createAnswer(questionId, "database_accesstoken");
+        assertAnswers(questionId, 1, answerDate(first));
+        String second = createAnswer(questionId, "database_accesstoken2");
+        assertAnswers(questionId, 2, answerDate(second));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + second).header("authorization", "database_accesstoken2"))
+                .andExpect(status().isOk());
+        assertAnswers(questionId, 1, answerDate(first));
+        mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/" + first).header("authorization", "database_accesstoken"))
+                .andExpect(status().isOk());
+        assertAnswers(questionId, 0, null);
+    }
+
+    //This test case passes when the answer count and the date of the latest answer listed with a question count every answer posted in bulk.
+    @Test
+    public void answerCountAfterBulkCreate() throws Exception {
+        String questionId = createQuestion("database_accesstoken1");
+        createAnswer(questionId, "database_accesstoken");
+        String response = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[{\"answer\":\"my_answer_1\"},{\"answer\":\"my_answer_2\"},{\"answer\":\"my_answer_3\"}]}").header("authorization", "database_accesstoken2"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        Instant lastAnswerAt = null;
+        for (String answerId : JsonPath.<List<String>>read(response, "ids")) {
+            Instant date = answerDate(answerId);
+            lastAnswerAt = lastAnswerAt == null || date.isAfter(lastAnswerAt) ? date : lastAnswerAt;
+        }
+        assertAnswers(questionId, 4, lastAnswerAt);
+    }
+
+    //This test case passes when you try to post many answers to a question but the JWT token entered does not exist in the database.
+    @Test
+    public void createAnswersInBulkWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[{\"answer\":\"my_answer\"}]}").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+    }
+
+    //This test case passes when you try to post many answers to a question but the user corresponding to the JWT token entered is signed out of the application.
+    @Test
+    public void createAnswersInBulkWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[{\"answer\":\"my_answer\"}]}").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when you try to post many answers to a question which does not exist in the database.
+    @Test
+    public void createAnswersInBulkForNonExistingQuestion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/non_existing_question_uuid/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[{\"answer\":\"my_answer\"}]}").header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when you try to post an empty list of answers to a question.
+    @Test
+    public void createAnswersInBulkWithNoAnswers() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/bulk").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("{\"answers\":[]}").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-003"));
+    }
+
 
-}
\ No newline at end of file
+}
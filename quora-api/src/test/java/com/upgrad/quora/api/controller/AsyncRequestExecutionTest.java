@@ -0,0 +1,135 @@
+package com.upgrad.quora.api.controller;
+
+
+import com.upgrad.quora.api.config.RequestExecutor;
+import com.upgrad.quora.api.config.RequestExecutor.Bulkhead;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "quora.request-execution.mode=async",
+        "quora.request-execution.bulkheads.read.pool-size=1",
+        "quora.request-execution.bulkheads.read.queue-capacity=1",
+        "quora.conditional-get.enabled=true"})
+public class AsyncRequestExecutionTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private RequestExecutor requestExecutor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    /**
+     * Occupies the single read thread with work that waits for the given latch, once the work of the previous requests
+     * is done.
+     */
+    private CompletableFuture<Boolean> occupyReadThread(CountDownLatch latch) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> future = requestExecutor.supply(Bulkhead.READ, () -> {
+            started.countDown();
+            return latch.await(10, TimeUnit.SECONDS);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return future;
+    }
+
+    /**
+     * Performs a read while the read thread is held, so that it is queued and answered once its result is dispatched
+     * back, rather than completed before the handler returns.
+     */
+    private ResultActions dispatch(MockHttpServletRequestBuilder request) throws Exception {
+        CountDownLatch handedOver = new CountDownLatch(1);
+        CompletableFuture<Boolean> holder = occupyReadThread(handedOver);
+        MvcResult result = mvc.perform(request)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        handedOver.countDown();
+        assertTrue(holder.get(5, TimeUnit.SECONDS));
+        return mvc.perform(asyncDispatch(result));
+    }
+
+    //This test case passes when, in async mode, getting all the questions is served by the read bulkhead and answers 200 with the questions.
+    @Test
+    public void getAllQuestions() throws Exception {
+        dispatch(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray());
+    }
+
+    //This test case passes when, in async mode, a business exception thrown on a bulkhead thread is mapped to its error response.
+    @Test
+    public void getAllAnswersToNonExistingQuestion() throws Exception {
+        dispatch(MockMvcRequestBuilders.get("/answer/all/non_existing_question_uuid").header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when, in async mode, getting all the questions again with the ETag of the previous response answers 304 with that ETag.
+    @Test
+    public void getAllQuestionsNotModified() throws Exception {
+        String eTag = dispatch(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        dispatch(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", eTag));
+    }
+
+    //This test case passes when, in async mode, a read with the read bulkhead thread busy and its queue full gets 503 with Retry-After and SVC-002, and is served again once they are free.
+    @Test
+    public void getAllQuestionsWithSaturatedBulkhead() throws Exception {
+        // One running on the single thread and one in the queue of capacity 1
+        List<CompletableFuture<Boolean>> blocked = new ArrayList<>();
+        blocked.add(occupyReadThread(release));
+        blocked.add(requestExecutor.supply(Bulkhead.READ, () -> release.await(10, TimeUnit.SECONDS)));
+        assertFalse(blocked.get(1).isDone());
+
+        // The future of a rejected request has failed before the handler returns it, so it is answered without going async
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.header().string("Retry-After", "1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SVC-002"));
+
+        release.countDown();
+        for (CompletableFuture<Boolean> future : blocked) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+        dispatch(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+    }
+}
@@ -1,28 +1,81 @@
 package com.upgrad.quora.api.controller;
 
 
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.persistence.EntityManagerFactory;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @AutoConfigureMockMvc
-
+@TestPropertySource(properties = "quora.conditional-get.enabled=true")
 public class QuestionControllerTest {
 
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics startCountingStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    private String createQuestion(String accessToken) throws Exception {
+        String response = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "id");
+    }
+
+    private void createAnswers(String questionId, String... accessTokens) throws Exception {
+        for (String accessToken : accessTokens) {
+            mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", accessToken))
+                    .andExpect(status().isCreated());
+        }
+    }
+
+    // Two questions by each of two users, answered by three users
+    private void seedQuestions() throws Exception {
+        for (String accessToken : new String[]{"database_accesstoken", "database_accesstoken1"}) {
+            for (int i = 0; i < 2; i++) {
+                createAnswers(createQuestion(accessToken), "database_accesstoken", "database_accesstoken1", "database_accesstoken2");
+            }
+        }
+    }
+
+    private long statementCount(MockHttpServletRequestBuilder request) throws Exception {
+        Statistics statistics = startCountingStatements();
+        mvc.perform(request.header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray());
+        return statistics.getPrepareStatementCount();
+    }
+
 
     //This test case passes when you try to create the question but the JWT token entered does not exist in the database.
     @Test
@@ -152,5 +205,180 @@ public class QuestionControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
     }
 
+    //This test case passes when you try to get the first page of questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void getQuestionsPage() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/page?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("questions").isArray());
+    }
+
+    //This test case passes when the questions listed carry their answer count without the answers being read.
+    @Test
+    public void getAllQuestionsByUserWithAnswerCount() throws Exception {
+        String questionId = createQuestion("database_accesstoken1");
+        createAnswers(questionId, "database_accesstoken", "database_accesstoken2", "database_accesstoken2");
+        Statistics statistics = startCountingStatements();
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == '" + questionId + "')].answerCount").value(contains(3)));
+        // access token lookup + question projection, ANSWER is not queried and the user is in the second-level cache
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when you try to get a page of questions with a cursor that was not issued by the application.
+    @Test
+    public void getQuestionsPageWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/page?cursor=invalid_cursor").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-001"));
+    }
+
+    //This test case passes when you try to search the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void searchQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?query=question&limit=5").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("questions").isArray());
+    }
+
+    //This test case passes when the snippet of a search result HTML-escapes the content of the question and only the matched words are wrapped in <b></b>.
+    @Test
+    public void searchQuestionsEscapesSnippet() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/create").param("content", "<script>alert('xss')</script> escapedsnippet & more").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated());
+        mvc.perform(MockMvcRequestBuilders.get("/question/search").param("query", "escapedsnippet").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("questions[0].snippet").value(not(containsString("<script"))))
+                .andExpect(MockMvcResultMatchers.jsonPath("questions[0].snippet").value(containsString("alert(&#39;xss&#39;)")))
+                .andExpect(MockMvcResultMatchers.jsonPath("questions[0].snippet").value(containsString("<b>escapedsnippet</b> &amp; more")));
+    }
+
+    //This test case passes when you try to search the questions with a blank query.
+    @Test
+    public void searchQuestionsWithBlankQuery() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search").param("query", " ").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("REQ-004"));
+    }
+
+    //This test case passes when you try to search the questions but the user corresponding to the JWT token entered is signed out.
+    @Test
+    public void searchQuestionsWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?query=question").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when you try to stream all the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void streamAllQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/stream").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$").isArray());
+    }
+
+    //This test case passes when you try to stream all the questions but the user corresponding to the JWT token entered is signed out.
+    @Test
+    public void streamAllQuestionsWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/stream").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when you try to import questions as NDJSON and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void importQuestionsAsNdjson() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/import").contentType("application/x-ndjson").content("{\"content\":\"my_question_1\"}\n{\"content\":\"\"}\nnot_json\n{\"content\":\"my_question_2\"}\n").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("imported").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("failed").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("errors[0].record").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("errors[1].record").value(3));
+    }
+
+    //This test case passes when you try to import questions as a JSON array and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void importQuestionsAsJsonArray() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/import").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).content("[{\"content\":\"my_question_1\"},{\"content\":[]},{\"content\":\"my_question_2\"}]").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("imported").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("failed").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("errors[0].record").value(2));
+    }
+
+    //This test case passes when you try to import questions but the user corresponding to the JWT token entered is signed out.
+    @Test
+    public void importQuestionsWithSignedOutUser() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/import").contentType("application/x-ndjson").content("{\"content\":\"my_question\"}\n").header("authorization", "database_accesstoken3"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+    }
+
+    //This test case passes when getting all the questions again with the ETag of the previous response answers 304 without querying the questions, until a question is created.
+    @Test
+    public void getAllQuestionsNotModified() throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andReturn();
+        String eTag = result.getResponse().getHeader("ETag");
+
+        Statistics statistics = startCountingStatements();
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", eTag));
+        // access token lookup only, the tokens of the test data have expired so they are never cached
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+    }
+
+    //This test case passes when getting the answers to a question with the ETag given before the question was deleted does not answer 304.
+    @Test
+    public void getAllAnswersOfDeletedQuestionModified() throws Exception {
+        MvcResult created = mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andReturn();
+        String questionId = JsonPath.read(created.getResponse().getContentAsString(), "id");
+        String eTag = mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", eTag));
+
+        mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken1").header("If-None-Match", eTag))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+    }
+
+    //This test case passes when getting all the questions runs the same number of SQL statements however many questions and users there are.
+    @Test
+    public void getAllQuestionsStatementCount() throws Exception {
+        seedQuestions();
+        // access token lookup (the tokens of the test data have expired so they are never cached) + question projection
+        assertEquals(2, statementCount(MockMvcRequestBuilders.get("/question/all")));
+
+        seedQuestions();
+        assertEquals(2, statementCount(MockMvcRequestBuilders.get("/question/all")));
+    }
+
+    //This test case passes when you try to get all the questions posted by a user and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in, with the same number of SQL statements however many questions the user posted.
+    @Test
+    public void getAllQuestionsByUser() throws Exception {
+        seedQuestions();
+        // access token lookup + question projection, the user is in the second-level cache
+        assertEquals(2, statementCount(MockMvcRequestBuilders.get("/question/all/database_uuid1")));
+
+        seedQuestions();
+        assertEquals(2, statementCount(MockMvcRequestBuilders.get("/question/all/database_uuid1")));
+    }
+
 
 }
@@ -0,0 +1,135 @@
+package com.upgrad.quora.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.filter.ConcurrencyLimitFilter.Limit;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConcurrencyLimitFilterTest {
+
+    private static final long TARGET_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private Limit limit(final int initialLimit) {
+        return new Limit("read", initialLimit, 2, 100, 100, 0.5, registry);
+    }
+
+    //This test case passes when requests within the latency target raise the limit by one per limit's worth of requests while it is at least half used, and not while it is barely used.
+    @Test
+    public void increasesWhileInUse() {
+        final Limit limit = limit(10);
+        final long start = System.nanoTime();
+        assertTrue(limit.tryAcquire());
+        limit.release(start, start + 1);
+        assertEquals(10, limit.limit());
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        for (int i = 0; i < 11; i++) {
+            limit.release(start, start + 1);
+            assertTrue(limit.tryAcquire());
+        }
+        assertEquals(11, limit.limit());
+    }
+
+    //This test case passes when the requests in flight when the limit is cut do not cut it again, and a slow request admitted after the cut does.
+    @Test
+    public void decreasesOncePerRoundTrip() {
+        final Limit limit = limit(10);
+        final long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+        final long end = start + 2 * TARGET_NANOS;
+        limit.release(start, end);
+        assertEquals(5, limit.limit());
+        for (int i = 0; i < 3; i++) {
+            limit.release(start, end + i);
+        }
+        assertEquals(5, limit.limit());
+
+        assertTrue(limit.tryAcquire());
+        limit.release(end + 10, end + 10 + 2 * TARGET_NANOS);
+        assertEquals(2, limit.limit());
+    }
+
+    //This test case passes when the requests beyond the limit are rejected and counted, and admitted again once a request is released.
+    @Test
+    public void rejectsBeyondLimit() {
+        final Limit limit = limit(2);
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(1.0, registry.get(ConcurrencyLimitFilter.REJECTED_COUNTER).tag("endpoints", "read").counter().count(), 0);
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @SuppressWarnings("unchecked")
+    private ConcurrencyLimitFilter filter() {
+        final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter();
+        final ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable()).thenReturn(registry);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "exemptPrefixes", new String[]{"/actuator"});
+        ReflectionTestUtils.setField(filter, "unsampledEndpoints", new String[]{"/question/import"});
+        ReflectionTestUtils.setField(filter, "authEndpoints", new String[]{"/user/signin"});
+        ReflectionTestUtils.setField(filter, "readInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "readMinLimit", 1);
+        ReflectionTestUtils.setField(filter, "readMaxLimit", 1);
+        ReflectionTestUtils.setField(filter, "writeInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "writeMinLimit", 1);
+        ReflectionTestUtils.setField(filter, "writeMaxLimit", 1);
+        ReflectionTestUtils.setField(filter, "authInitialLimit", 1);
+        ReflectionTestUtils.setField(filter, "authMinLimit", 1);
+        ReflectionTestUtils.setField(filter, "authMaxLimit", 1);
+        ReflectionTestUtils.setField(filter, "backoffRatio", 0.9);
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 3L);
+        ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        filter.initFilterBean();
+        return filter;
+    }
+
+    //This test case passes when a write beyond the limit gets 503 with Retry-After and SVC-004 while a sign in, which has a limit of its own, is still let through.
+    @Test
+    public void rejectsWritesBeyondLimitButNotSignIns() throws Exception {
+        final ConcurrencyLimitFilter filter = filter();
+        final MockHttpServletResponse rejected = new MockHttpServletResponse();
+        final AtomicReference<Boolean> signedIn = new AtomicReference<>(false);
+        // The nested requests run while the first write holds the only permit of the write limit
+        filter.doFilter(new MockHttpServletRequest("POST", "/question/create"), new MockHttpServletResponse(),
+                (request, response) -> {
+                    filter.doFilter(new MockHttpServletRequest("DELETE", "/question/delete/1"), rejected,
+                            (nestedRequest, nestedResponse) -> {
+                                throw new AssertionError("The write should have been rejected");
+                            });
+                    filter.doFilter(new MockHttpServletRequest("POST", "/user/signin"), new MockHttpServletResponse(),
+                            (nestedRequest, nestedResponse) -> signedIn.set(true));
+                });
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("3", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("\"code\":\"SVC-004\""));
+        assertEquals(1.0, registry.get(ConcurrencyLimitFilter.REJECTED_COUNTER).tag("endpoints", "write").counter().count(), 0);
+        assertEquals(0.0, registry.get(ConcurrencyLimitFilter.REJECTED_COUNTER).tag("endpoints", "auth").counter().count(), 0);
+        assertTrue(signedIn.get());
+    }
+}
@@ -0,0 +1,95 @@
+package com.upgrad.quora.api.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RateLimitFilterTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final AtomicInteger served = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    private RateLimitFilter filter(final String... routes) {
+        final RateLimitFilter filter = new RateLimitFilter();
+        final ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable()).thenReturn(registry);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "routeSpecs", routes);
+        ReflectionTestUtils.setField(filter, "buckets", 4096);
+        ReflectionTestUtils.setField(filter, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(filter, "meterRegistry", meterRegistry);
+        filter.initFilterBean();
+        return filter;
+    }
+
+    private MockHttpServletResponse perform(final RateLimitFilter filter, final String path, final String remoteAddr,
+                                            final String accessToken) throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(remoteAddr);
+        if (accessToken != null) {
+            request.addHeader("authorization", accessToken);
+        }
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (filteredRequest, filteredResponse) -> served.incrementAndGet());
+        return response;
+    }
+
+    private double rejected(final String route, final String key) {
+        return registry.get(RateLimitFilter.REJECTED_COUNTER).tag("route", route).tag("key", key).counter().count();
+    }
+
+    //This test case passes when a client over its burst gets 429 with Retry-After and SVC-003, the rejection is counted and other clients are still served.
+    @Test
+    public void rejectsOverBurst() throws Exception {
+        final RateLimitFilter filter = filter("/user/signin ip 60 2");
+        assertEquals(200, perform(filter, "/user/signin", "10.0.0.1", null).getStatus());
+        assertEquals(200, perform(filter, "/user/signin", "10.0.0.1", null).getStatus());
+
+        final MockHttpServletResponse rejected = perform(filter, "/user/signin", "10.0.0.1", null);
+        assertEquals(429, rejected.getStatus());
+        // One request per second, the next token is at most a second away
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString().contains("\"code\":\"SVC-003\""));
+        assertEquals(1.0, rejected("/user/signin", "ip"), 0);
+
+        assertEquals(200, perform(filter, "/user/signin", "10.0.0.2", null).getStatus());
+        assertEquals(200, perform(filter, "/question/all", "10.0.0.1", null).getStatus());
+        assertEquals(4, served.get());
+    }
+
+    //This test case passes when a request rejected by one route of its path takes no token from the others, so that it does not use up their rate.
+    @Test
+    public void takesTokensOnlyIfEveryRouteAdmits() throws Exception {
+        final RateLimitFilter filter = filter("/question/all token 60 1", "/question/** ip 60 3");
+        assertEquals(200, perform(filter, "/question/all", "10.0.0.1", "token1").getStatus());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(429, perform(filter, "/question/all", "10.0.0.1", "token1").getStatus());
+        }
+        assertEquals(3.0, rejected("/question/all", "token"), 0);
+        assertEquals(0.0, rejected("/question/**", "ip"), 0);
+
+        // The IP bucket only gave the one request let through
+        assertEquals(200, perform(filter, "/question/all", "10.0.0.1", "token2").getStatus());
+        assertEquals(200, perform(filter, "/question/all", "10.0.0.1", "token3").getStatus());
+        final MockHttpServletResponse rejected = perform(filter, "/question/all", "10.0.0.1", "token4");
+        assertEquals(429, rejected.getStatus());
+        assertEquals(1.0, rejected("/question/**", "ip"), 0);
+        // token4 had a token left, which was not taken either
+        assertEquals(200, perform(filter, "/question/all", "10.0.0.2", "token4").getStatus());
+        assertEquals(4, served.get());
+    }
+}
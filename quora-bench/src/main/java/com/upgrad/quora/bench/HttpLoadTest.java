@@ -0,0 +1,158 @@
+package com.upgrad.quora.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-loop HTTP load test of a running quora-api, used to compare the request execution modes under database
+ * bound load. Each client sends the next request as soon as the previous one is answered, so with more clients than
+ * Tomcat threads the default profile queues connections while the io-bound profile keeps accepting them.
+ * <p>
+ * Usage: HttpLoadTest url authorization [clients] [warmup-seconds] [duration-seconds]
+ * e.g. http://localhost:8080/api/question/all database_accesstoken1 400 10 30
+ */
+public class HttpLoadTest {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+
+    public static void main(final String[] args) throws InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: HttpLoadTest url authorization [clients] [warmup-seconds] [duration-seconds]");
+            System.exit(1);
+        }
+        final URL url;
+        try {
+            url = new URL(args[0]);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid url " + args[0], e);
+        }
+        final String authorization = args[1];
+        final int clients = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        final long warmupNanos = TimeUnit.SECONDS.toNanos(args.length > 3 ? Long.parseLong(args[3]) : 10);
+        final long durationNanos = TimeUnit.SECONDS.toNanos(args.length > 4 ? Long.parseLong(args[4]) : 30);
+        // Keep-alive connections, one per client
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+
+        final long start = System.nanoTime();
+        final long measureFrom = start + warmupNanos;
+        final long measureUntil = measureFrom + durationNanos;
+        final List<Client> workers = new ArrayList<>(clients);
+        final CountDownLatch done = new CountDownLatch(clients);
+        for (int i = 0; i < clients; i++) {
+            final Client client = new Client(url, authorization, measureFrom, measureUntil, done);
+            workers.add(client);
+            final Thread thread = new Thread(client, "load-client-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+
+        long requests = 0;
+        long failures = 0;
+        long[] latencies = new long[0];
+        for (Client client : workers) {
+            requests += client.count;
+            failures += client.failures;
+            final int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + client.count);
+            System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+        }
+        Arrays.sort(latencies);
+        final double seconds = durationNanos / 1e9;
+        System.out.printf("url=%s clients=%d duration=%.0fs%n", url, clients, seconds);
+        System.out.printf("requests=%d failures=%d throughput=%.1f req/s%n", requests, failures, requests / seconds);
+        System.out.printf("latency ms p50=%.1f p95=%.1f p99=%.1f max=%.1f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.95), percentile(latencies, 0.99),
+                percentile(latencies, 1.0));
+    }
+
+    private static double percentile(final long[] sortedNanos, final double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        final int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(index, 0)] / 1e6;
+    }
+
+    /**
+     * Sends requests one after the other and records the latency of the ones started in the measurement window.
+     * Any response other than 200 or 304 is a failure.
+     */
+    private static final class Client implements Runnable {
+        private final URL url;
+        private final String authorization;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final CountDownLatch done;
+        private final byte[] buffer = new byte[8192];
+        private long[] latencies = new long[1024];
+        private int count;
+        private long failures;
+
+        private Client(final URL url, final String authorization, final long measureFrom, final long measureUntil,
+                       final CountDownLatch done) {
+            this.url = url;
+            this.authorization = authorization;
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long now;
+                while ((now = System.nanoTime()) < measureUntil) {
+                    final boolean ok = send();
+                    if (now < measureFrom) {
+                        continue;
+                    }
+                    if (!ok) {
+                        failures++;
+                        continue;
+                    }
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - now;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private boolean send() {
+            HttpURLConnection connection = null;
+            try {
+                connection = (HttpURLConnection) url.openConnection();
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+                connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+                connection.setRequestProperty("authorization", authorization);
+                final int status = connection.getResponseCode();
+                // Read the body to the end so that the connection is kept alive for the next request
+                try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                    if (body != null) {
+                        while (body.read(buffer) != -1) {
+                            // discard
+                        }
+                    }
+                }
+                return status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_NOT_MODIFIED;
+            } catch (IOException e) {
+                if (connection != null) {
+                    connection.disconnect();
+                }
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.RandomIdGenerator;
+import com.upgrad.quora.service.business.TimeOrderedIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The uuid generated for every new user, question and answer, from several threads as under concurrent writes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    private final RandomIdGenerator randomIdGenerator = new RandomIdGenerator();
+
+    private final TimeOrderedIdGenerator timeOrderedIdGenerator = new TimeOrderedIdGenerator();
+
+    @Benchmark
+    public String random() {
+        return randomIdGenerator.nextId();
+    }
+
+    @Benchmark
+    public String timeOrdered() {
+        return timeOrderedIdGenerator.nextId();
+    }
+}
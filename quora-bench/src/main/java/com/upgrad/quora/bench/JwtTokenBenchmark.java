@@ -0,0 +1,58 @@
+package com.upgrad.quora.bench;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Access token signing done on every sign in, and the in-memory verification used by stateless token checks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtTokenBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    private String userUuid;
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        // Sign in uses the hashed password (128 hex chars) as the secret unless a server-wide secret is configured
+        final String secret = PasswordCryptographyProvider.encrypt("quora@123")[1];
+        jwtTokenProvider = new JwtTokenProvider(secret);
+        userUuid = UUID.randomUUID().toString();
+        final ZonedDateTime now = ZonedDateTime.now();
+        token = jwtTokenProvider.generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public String generateToken() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        return jwtTokenProvider.generateToken(userUuid, now, now.plusHours(8));
+    }
+
+    @Benchmark
+    public DecodedJWT verifyToken() {
+        return jwtTokenProvider.verifyToken(token);
+    }
+}
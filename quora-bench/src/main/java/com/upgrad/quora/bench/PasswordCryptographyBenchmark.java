@@ -0,0 +1,51 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.PasswordCryptographyProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PBKDF2 hashing done on sign up (new salt + hash) and sign in (hash with the stored salt).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordCryptographyBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int iterations;
+
+    private String password;
+
+    private String salt;
+
+    @Setup
+    public void setup() {
+        password = "quora@123";
+        salt = PasswordCryptographyProvider.encrypt(password, iterations)[0];
+    }
+
+    @Benchmark
+    public String[] encryptWithNewSalt() {
+        return PasswordCryptographyProvider.encrypt(password, iterations);
+    }
+
+    @Benchmark
+    public String encryptWithStoredSalt() {
+        return PasswordCryptographyProvider.encrypt(password, salt);
+    }
+}
@@ -0,0 +1,65 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.api.controller.AnswerController;
+import com.upgrad.quora.api.controller.QuestionController;
+import com.upgrad.quora.api.model.AnswerDetailsResponse;
+import com.upgrad.quora.api.model.QuestionDetailsResponse;
+import com.upgrad.quora.service.model.AnswerSummary;
+import com.upgrad.quora.service.model.QuestionSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Projection to response model mapping done by the question and answer listing endpoints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResponseMappingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private List<QuestionSummary> questions;
+
+    private List<AnswerSummary> answers;
+
+    @Setup
+    public void setup() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        questions = new ArrayList<>(size);
+        answers = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            questions.add(new QuestionSummary(i, UUID.randomUUID().toString(), "Question number " + i, now, i % 5, now));
+            answers.add(new AnswerSummary(UUID.randomUUID().toString(), "Answer number " + i, "How are answers mapped?"));
+        }
+    }
+
+    @Benchmark
+    public List<QuestionDetailsResponse> mapQuestions() {
+        return QuestionController.toQuestionDetailsResponses(questions);
+    }
+
+    @Benchmark
+    public List<AnswerDetailsResponse> mapAnswers() {
+        return AnswerController.toAnswerDetailsResponses(answers);
+    }
+}
@@ -0,0 +1,41 @@
+package com.upgrad.quora.bench;
+
+import com.upgrad.quora.service.business.UserBusinessService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base64 decoding and splitting of the sign in authorization header.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignInHeaderBenchmark {
+
+    private String authorization;
+
+    @Setup
+    public void setup() {
+        authorization = Base64.getEncoder().encodeToString("database_username:quora@123".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String[] decodeBasicAuthorization() {
+        return UserBusinessService.decodeBasicAuthorization(authorization);
+    }
+}
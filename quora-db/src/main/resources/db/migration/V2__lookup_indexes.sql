@@ -0,0 +1,25 @@
+--Indexes for the columns every named query filters on. They are built CONCURRENTLY so that the migration can be
+--applied to a live database without blocking writes; Flyway runs such statements outside a transaction.
+--If a build is interrupted, drop the INVALID index left behind before re-running the migration.
+
+--userByUserId
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS users_uuid_uk ON users (uuid);
+
+--userAuthByAccessToken
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS user_auth_access_token_uk ON user_auth (access_token);
+--ON DELETE CASCADE from USERS
+CREATE INDEX CONCURRENTLY IF NOT EXISTS user_auth_user_id_idx ON user_auth (user_id);
+
+--getQuestionById
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS question_uuid_uk ON question (uuid);
+--getQuestionByUser and ON DELETE CASCADE from USERS
+CREATE INDEX CONCURRENTLY IF NOT EXISTS question_user_id_date_idx ON question (user_id, date DESC, id DESC);
+--getQuestionsFirstPage / getQuestionsAfter keyset pagination
+CREATE INDEX CONCURRENTLY IF NOT EXISTS question_date_id_idx ON question (date DESC, id DESC);
+
+--answerByUUID
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS answer_uuid_uk ON answer (uuid);
+--answerByQuestionId and ON DELETE CASCADE from QUESTION
+CREATE INDEX CONCURRENTLY IF NOT EXISTS answer_question_id_idx ON answer (question_id, id);
+--ON DELETE CASCADE from USERS
+CREATE INDEX CONCURRENTLY IF NOT EXISTS answer_user_id_idx ON answer (user_id);
@@ -0,0 +1,3 @@
+--AnswerEntity ids are generated from answer_id_seq with a pooled optimizer that reserves 50 ids per nextval call,
+--so the sequence has to advance by the same allocation size. Rows inserted with the column default just leave gaps.
+ALTER SEQUENCE answer_id_seq INCREMENT BY 50;
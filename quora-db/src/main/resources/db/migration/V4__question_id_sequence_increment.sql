@@ -0,0 +1,3 @@
+--QuestionEntity ids are generated from question_id_seq with a pooled optimizer that reserves 50 ids per nextval call,
+--so that imported questions can be inserted in JDBC batches. The sequence has to advance by the same allocation size.
+ALTER SEQUENCE question_id_seq INCREMENT BY 50;
@@ -0,0 +1,28 @@
+--Full-text search vectors for question content and answers, kept up to date by triggers. They are plain columns
+--rather than generated ones: adding a column without a default only changes the catalog, whereas a generated column
+--rewrites the whole table under an ACCESS EXCLUSIVE lock. The rows already there are filled in by V6.
+--The 'english' configuration must match the one used by searchQuestions.
+ALTER TABLE question ADD COLUMN IF NOT EXISTS content_tsv tsvector;
+ALTER TABLE answer ADD COLUMN IF NOT EXISTS ans_tsv tsvector;
+
+CREATE OR REPLACE FUNCTION question_content_tsv() RETURNS trigger AS $$
+BEGIN
+    NEW.content_tsv := to_tsvector('english', NEW.content);
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION answer_ans_tsv() RETURNS trigger AS $$
+BEGIN
+    NEW.ans_tsv := to_tsvector('english', NEW.ans);
+    RETURN NEW;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS question_content_tsv ON question;
+CREATE TRIGGER question_content_tsv BEFORE INSERT OR UPDATE OF content ON question
+    FOR EACH ROW EXECUTE PROCEDURE question_content_tsv();
+
+DROP TRIGGER IF EXISTS answer_ans_tsv ON answer;
+CREATE TRIGGER answer_ans_tsv BEFORE INSERT OR UPDATE OF ans ON answer
+    FOR EACH ROW EXECUTE PROCEDURE answer_ans_tsv();
@@ -0,0 +1,42 @@
+--Fills in the search vectors of the rows written before the V5 triggers, then adds the GIN indexes for the @@ matches
+--of searchQuestions, built CONCURRENTLY like the lookup indexes of V2. The migration runs outside a transaction, so
+--each batch of 1000 rows is committed on its own and only holds the locks of its rows; committing inside a DO block
+--needs PostgreSQL 11 or later. It can be re-run after an interruption, filled rows are skipped.
+--If an index build is interrupted, drop the INVALID index left behind before re-running the migration.
+
+DO $$
+DECLARE
+    last_id INTEGER := 0;
+    batch_end INTEGER;
+BEGIN
+    LOOP
+        SELECT max(id) INTO batch_end FROM (SELECT id FROM question WHERE id > last_id ORDER BY id LIMIT 1000) batch;
+        EXIT WHEN batch_end IS NULL;
+        UPDATE question SET content_tsv = to_tsvector('english', content)
+        WHERE id > last_id AND id <= batch_end AND content_tsv IS NULL;
+        COMMIT;
+        last_id := batch_end;
+    END LOOP;
+END
+$$;
+
+DO $$
+DECLARE
+    last_id INTEGER := 0;
+    batch_end INTEGER;
+BEGIN
+    LOOP
+        SELECT max(id) INTO batch_end FROM (SELECT id FROM answer WHERE id > last_id ORDER BY id LIMIT 1000) batch;
+        EXIT WHEN batch_end IS NULL;
+        UPDATE answer SET ans_tsv = to_tsvector('english', ans)
+        WHERE id > last_id AND id <= batch_end AND ans_tsv IS NULL;
+        COMMIT;
+        last_id := batch_end;
+    END LOOP;
+END
+$$;
+
+--searchQuestions on question content
+CREATE INDEX CONCURRENTLY IF NOT EXISTS question_content_tsv_idx ON question USING GIN (content_tsv);
+--searchQuestions on answers
+CREATE INDEX CONCURRENTLY IF NOT EXISTS answer_ans_tsv_idx ON answer USING GIN (ans_tsv);
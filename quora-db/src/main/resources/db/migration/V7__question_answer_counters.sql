@@ -0,0 +1,41 @@
+--Number of answers and date of the latest answer of every question, so that the question listings never read ANSWER.
+--They are maintained by triggers on ANSWER, so that every path writing answers keeps them right: the services, the
+--ON DELETE CASCADE from USERS and QUESTION, and an application version without this change still running while it is
+--deployed. The triggers run once per statement on its transition table, so a batched insert of answers updates each
+--of their questions once. Creating them blocks the writes to ANSWER until the backfill below commits, so that no
+--answer is left out of the counters.
+ALTER TABLE question ADD COLUMN IF NOT EXISTS answer_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE question ADD COLUMN IF NOT EXISTS last_answer_at TIMESTAMP;
+
+CREATE OR REPLACE FUNCTION question_answers_inserted() RETURNS trigger AS $$
+BEGIN
+    UPDATE question q SET answer_count = q.answer_count + i.answer_count,
+        last_answer_at = greatest(q.last_answer_at, i.last_answer_at)
+    FROM (SELECT question_id, count(*) AS answer_count, max(date) AS last_answer_at FROM inserted_answers GROUP BY question_id) i
+    WHERE q.id = i.question_id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+--The answers of a deleted question are gone by ON DELETE CASCADE along with it, and then there is no row to update
+CREATE OR REPLACE FUNCTION question_answers_deleted() RETURNS trigger AS $$
+BEGIN
+    UPDATE question q SET answer_count = q.answer_count - d.answer_count,
+        last_answer_at = (SELECT max(a.date) FROM answer a WHERE a.question_id = q.id)
+    FROM (SELECT question_id, count(*) AS answer_count FROM deleted_answers GROUP BY question_id) d
+    WHERE q.id = d.question_id;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS question_answers_inserted ON answer;
+CREATE TRIGGER question_answers_inserted AFTER INSERT ON answer REFERENCING NEW TABLE AS inserted_answers
+    FOR EACH STATEMENT EXECUTE PROCEDURE question_answers_inserted();
+
+DROP TRIGGER IF EXISTS question_answers_deleted ON answer;
+CREATE TRIGGER question_answers_deleted AFTER DELETE ON answer REFERENCING OLD TABLE AS deleted_answers
+    FOR EACH STATEMENT EXECUTE PROCEDURE question_answers_deleted();
+
+UPDATE question q SET answer_count = a.answer_count, last_answer_at = a.last_answer_at
+FROM (SELECT question_id, count(*) AS answer_count, max(date) AS last_answer_at FROM answer GROUP BY question_id) a
+WHERE q.id = a.question_id;
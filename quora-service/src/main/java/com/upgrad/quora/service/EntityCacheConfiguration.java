@@ -0,0 +1,99 @@
+package com.upgrad.quora.service;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds the Ehcache manager behind the Hibernate second-level cache from the "quora.cache" properties so that every
+ * entity and natural-id region gets its own size and time-to-live. The manager is registered as the Ehcache singleton
+ * before the entity manager factory is created, which is where SingletonEhCacheRegionFactory looks it up.
+ */
+@Configuration
+@EnableConfigurationProperties(EntityCacheConfiguration.EntityCacheProperties.class)
+public class EntityCacheConfiguration {
+
+    // The singleton is reference counted and shut down by the Hibernate region factory, not by this context
+    @Bean(destroyMethod = "")
+    public CacheManager hibernateCacheManager(final EntityCacheProperties properties) {
+        final net.sf.ehcache.config.Configuration configuration = new net.sf.ehcache.config.Configuration()
+                .name("quora-hibernate")
+                .defaultCache(properties.getDefaults().toCacheConfiguration(null));
+        for (final Map.Entry<String, EntityCacheProperties.Region> region : properties.getRegions().entrySet()) {
+            configuration.addCache(region.getValue().toCacheConfiguration(region.getKey()));
+        }
+        return CacheManager.create(configuration);
+    }
+
+    @Configuration
+    static class EntityManagerFactoryDependsOnHibernateCacheManager extends EntityManagerFactoryDependsOnPostProcessor {
+
+        EntityManagerFactoryDependsOnHibernateCacheManager() {
+            super("hibernateCacheManager");
+        }
+    }
+
+    @ConfigurationProperties(prefix = "quora.cache")
+    public static class EntityCacheProperties {
+
+        /**
+         * Settings of regions that are not listed under regions.
+         */
+        private Region defaults = new Region();
+
+        /**
+         * Settings per region name, as given in the @Cache and @NaturalIdCache annotations of the entities.
+         */
+        private Map<String, Region> regions = new LinkedHashMap<>();
+
+        public Region getDefaults() {
+            return defaults;
+        }
+
+        public void setDefaults(final Region defaults) {
+            this.defaults = defaults;
+        }
+
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+
+        public void setRegions(final Map<String, Region> regions) {
+            this.regions = regions;
+        }
+
+        public static class Region {
+
+            private int maxEntries = 1000;
+
+            private long ttlSeconds = 300;
+
+            public int getMaxEntries() {
+                return maxEntries;
+            }
+
+            public void setMaxEntries(final int maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+
+            public long getTtlSeconds() {
+                return ttlSeconds;
+            }
+
+            public void setTtlSeconds(final long ttlSeconds) {
+                this.ttlSeconds = ttlSeconds;
+            }
+
+            private CacheConfiguration toCacheConfiguration(final String name) {
+                return new CacheConfiguration(name, maxEntries).eternal(false).timeToLiveSeconds(ttlSeconds);
+            }
+        }
+    }
+}
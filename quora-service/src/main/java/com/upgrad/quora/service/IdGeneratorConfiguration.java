@@ -0,0 +1,32 @@
+package com.upgrad.quora.service;
+
+import com.upgrad.quora.service.business.IdGenerator;
+import com.upgrad.quora.service.business.RandomIdGenerator;
+import com.upgrad.quora.service.business.TimeOrderedIdGenerator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Picks the generator of the uuid of new users, questions and answers with quora.id-generator, failing at startup on
+ * any other value than time-ordered or random.
+ */
+@Configuration
+public class IdGeneratorConfiguration {
+
+    public static final String TIME_ORDERED = "time-ordered";
+
+    public static final String RANDOM = "random";
+
+    @Bean
+    public IdGenerator idGenerator(@Value("${quora.id-generator:" + TIME_ORDERED + "}") final String idGenerator) {
+        switch (idGenerator.trim()) {
+            case TIME_ORDERED:
+                return new TimeOrderedIdGenerator();
+            case RANDOM:
+                return new RandomIdGenerator();
+            default:
+                throw new IllegalStateException("quora.id-generator must be " + TIME_ORDERED + " or " + RANDOM + ": " + idGenerator);
+        }
+    }
+}
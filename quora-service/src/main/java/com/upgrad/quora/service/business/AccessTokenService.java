@@ -0,0 +1,274 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves access tokens into user sessions.
+ * <p>
+ * By default every token is looked up in USER_AUTH. When stateless verification is enabled, tokens signed with the
+ * server-wide secret are verified in memory (signature, issuer and expiry) and the session is built from the user id
+ * and role they carry as signed claims, without any statement. Only the revocation sets of signed-out token ids and of
+ * deleted users are consulted; anything that does not verify or is revoked falls back to the USER_AUTH lookup.
+ * <p>
+ * The revocation sets are local to this instance and are seeded from USER_AUTH at startup, so a sign out or a user
+ * deletion served by another instance would go unnoticed here. Stateless verification therefore has to be
+ * acknowledged as running on a single instance with quora.jwt.single-instance. Revoked entries are purged on a
+ * schedule once the tokens they revoke have expired.
+ */
+@Service
+public class AccessTokenService {
+
+    public static final Duration ACCESS_TOKEN_VALIDITY = Duration.ofHours(8);
+
+    private static final String BEARER_PREFIX = "Bearer";
+
+    @Autowired
+    private UserAuthDao userAuthDao;
+
+    @Value("${quora.jwt.secret:}")
+    private String secret;
+
+    @Value("${quora.jwt.stateless-verification:false}")
+    private boolean statelessVerification;
+
+    @Value("${quora.jwt.single-instance:false}")
+    private boolean singleInstance;
+
+    @Value("${quora.jwt.revocation-purge-seconds:60}")
+    private long revocationPurgeSeconds;
+
+    // With read replicas the read-only transactions run on a replica, see quora.datasource.replicas
+    @Value("${quora.datasource.replicas.urls:}")
+    private String replicaUrls;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Reads the session on the primary when the calling transaction would read it from a replica
+    private TransactionTemplate primaryTransaction;
+
+    private JwtTokenProvider serverTokenProvider;
+
+    // key id of a signed out token -> its expiry in epoch millis
+    private final Map<String, Long> revokedKeyIds = new ConcurrentHashMap<>();
+
+    // id of a deleted user -> expiry of the last token that could have been issued to them, in epoch millis
+    private final Map<Integer, Long> revokedUserIds = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService revocationPurger;
+
+    @PostConstruct
+    public void init() {
+        if (!replicaUrls.trim().isEmpty()) {
+            primaryTransaction = new TransactionTemplate(transactionManager);
+            primaryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        if (!secret.isEmpty()) {
+            serverTokenProvider = new JwtTokenProvider(secret);
+        }
+        if (statelessVerification) {
+            if (serverTokenProvider == null) {
+                throw new IllegalStateException("quora.jwt.secret must be set when quora.jwt.stateless-verification is enabled");
+            }
+            if (!singleInstance) {
+                throw new IllegalStateException("quora.jwt.stateless-verification keeps the revoked tokens of this instance only, "
+                        + "set quora.jwt.single-instance=true to acknowledge that it runs on a single instance");
+            }
+            final List<String> signedOutTokens = userAuthDao.getSignedOutAccessTokens(ZonedDateTime.now());
+            for (final String signedOutToken : signedOutTokens) {
+                revoke(signedOutToken);
+            }
+            revocationPurger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "revoked-token-purge");
+                thread.setDaemon(true);
+                return thread;
+            });
+            revocationPurger.scheduleWithFixedDelay(this::purgeRevocations, revocationPurgeSeconds, revocationPurgeSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (revocationPurger != null) {
+            revocationPurger.shutdownNow();
+        }
+    }
+
+    /**
+     * Signs a new access token for the user, with the server-wide secret if configured, else with the user secret.
+     * Tokens signed with the server-wide secret carry the user id and role for stateless verification.
+     *
+     * @param user user signing in.
+     * @param userSecret per-user secret used when no server-wide secret is configured.
+     * @param issuedAt current time.
+     * @param expiresAt expiry time of the access token.
+     * @return the signed access token.
+     */
+    public String generateAccessToken(final UserEntity user, final String userSecret, final ZonedDateTime issuedAt,
+                                      final ZonedDateTime expiresAt) {
+        if (serverTokenProvider == null) {
+            return new JwtTokenProvider(userSecret).generateToken(user.getUuid(), issuedAt, expiresAt);
+        }
+        return serverTokenProvider.generateToken(user.getUuid(), user.getId(), user.getRole(), issuedAt, expiresAt);
+    }
+
+    /**
+     * Creates the principal of a request, whose session is looked up once it is first authorized.
+     *
+     * @param authorization authorization header of the request, "Bearer " followed by the access token or the access
+     *                      token alone.
+     * @return UserPrincipal of the access token.
+     */
+    public UserPrincipal getPrincipal(final String authorization) {
+        return new UserPrincipal(this, parseBearerToken(authorization));
+    }
+
+    /**
+     * Extracts the access token from the authorization header without splitting it: leading and trailing whitespace
+     * and an optional Bearer prefix are skipped, and the header itself is returned when there is nothing to skip.
+     *
+     * @param authorization authorization header of the request.
+     * @return the access token.
+     */
+    public static String parseBearerToken(final String authorization) {
+        int start = 0;
+        int end = authorization.length();
+        while (start < end && authorization.charAt(start) <= ' ') {
+            start++;
+        }
+        if (authorization.startsWith(BEARER_PREFIX, start)) {
+            start += BEARER_PREFIX.length();
+            while (start < end && authorization.charAt(start) <= ' ') {
+                start++;
+            }
+        }
+        while (end > start && authorization.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return start == 0 && end == authorization.length() ? authorization : authorization.substring(start, end);
+    }
+
+    /**
+     * Retrieves the user session for the access token, always from the primary. A replica lagging behind could still
+     * miss a session that has just been signed in, or miss its sign out, so within a read-only transaction the session
+     * is read in a transaction of its own when replicas are configured. The services authorize the request before
+     * their first statement, so the read-only transaction holds no connection yet at that point.
+     *
+     * @param accessToken access token of the user.
+     * @return the user session, or null if the token is unknown.
+     */
+    public UserAuthEntity getUserAuthByToken(final String accessToken) {
+        if (primaryTransaction != null && TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primaryTransaction.execute(status -> lookUp(accessToken));
+        }
+        return lookUp(accessToken);
+    }
+
+    private UserAuthEntity lookUp(final String accessToken) {
+        if (statelessVerification) {
+            final UserAuthEntity verifiedSession = verify(accessToken);
+            if (verifiedSession != null) {
+                return verifiedSession;
+            }
+        }
+        return userAuthDao.getUserAuthByToken(accessToken);
+    }
+
+    /**
+     * Adds the token to the revocation set so that it no longer passes stateless verification.
+     *
+     * @param accessToken access token that has been signed out.
+     */
+    public void revoke(final String accessToken) {
+        final DecodedJWT jwt;
+        try {
+            jwt = JWT.decode(accessToken);
+        } catch (JWTDecodeException e) {
+            // Not a JWT, it can only be validated against USER_AUTH
+            return;
+        }
+        if (jwt.getKeyId() == null || jwt.getExpiresAt() == null) {
+            return;
+        }
+        revokedKeyIds.put(jwt.getKeyId(), jwt.getExpiresAt().getTime());
+    }
+
+    /**
+     * Revokes every token of a deleted user so that none passes stateless verification any longer.
+     *
+     * @param userId id of the deleted user.
+     */
+    public void revokeUser(final Integer userId) {
+        if (statelessVerification) {
+            revokedUserIds.put(userId, System.currentTimeMillis() + ACCESS_TOKEN_VALIDITY.toMillis());
+        }
+    }
+
+    /**
+     * Drops the revocations of tokens that have expired, run on the purge interval.
+     */
+    void purgeRevocations() {
+        final long now = System.currentTimeMillis();
+        revokedKeyIds.values().removeIf(expiresAt -> expiresAt < now);
+        revokedUserIds.values().removeIf(expiresAt -> expiresAt < now);
+    }
+
+    /**
+     * Builds the session of a token signed with the server-wide secret from its claims. No USER_AUTH row is read, so
+     * the session has no id; signing out reads the row itself.
+     */
+    private UserAuthEntity verify(final String accessToken) {
+        final DecodedJWT jwt;
+        try {
+            jwt = serverTokenProvider.verifyToken(accessToken);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+        final Claim userId = jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM);
+        final Claim role = jwt.getClaim(JwtTokenProvider.ROLE_CLAIM);
+        // Tokens signed before the claims were added are looked up
+        if (jwt.getKeyId() == null || revokedKeyIds.containsKey(jwt.getKeyId()) || jwt.getIssuedAt() == null
+                || jwt.getAudience() == null || jwt.getAudience().isEmpty() || userId.isNull() || role.isNull()
+                || revokedUserIds.containsKey(userId.asInt())) {
+            return null;
+        }
+        // Like a session served by the session cache, the user only has the id, uuid and role
+        final UserEntity user = new UserEntity();
+        user.setId(userId.asInt());
+        user.setUuid(jwt.getAudience().get(0));
+        user.setRole(role.asString());
+        final UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setUuid(user.getUuid());
+        userAuthEntity.setUser(user);
+        userAuthEntity.setAccessToken(accessToken);
+        userAuthEntity.setLoginAt(ZonedDateTime.ofInstant(jwt.getIssuedAt().toInstant(), ZoneId.systemDefault()));
+        userAuthEntity.setExpiresAt(ZonedDateTime.ofInstant(jwt.getExpiresAt().toInstant(), ZoneId.systemDefault()));
+        return userAuthEntity;
+    }
+}
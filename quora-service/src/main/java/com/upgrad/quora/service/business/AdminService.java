@@ -1,11 +1,11 @@
 package com.upgrad.quora.service.business;
 
-import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.search.QuestionSearchEngine;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
@@ -15,21 +15,21 @@ import org.springframework.transaction.annotation.Transactional;
 public class AdminService {
 
     @Autowired
-    private UserAuthDao userAuthDao;
+    private UserDao userDao;
 
     @Autowired
-    private UserDao userDao;
+    private AccessTokenService accessTokenService;
+
+    @Autowired
+    private QuestionSearchEngine questionSearchEngine;
+
+    @Autowired
+    private ListingVersions listingVersions;
 
     @Transactional(propagation = Propagation.REQUIRED)
-    public UserEntity deleteUser(final String userId, final String accessToken) throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity= this.userAuthDao.getUserAuthByToken( accessToken );
+    public UserEntity deleteUser(final String userId, final UserPrincipal principal) throws AuthorizationFailedException, UserNotFoundException {
+        UserAuthEntity userAuthEntity = principal.authorize( "User is signed out" );
 
-        if(userAuthEntity == null){
-            throw new AuthorizationFailedException("ATHR-001","User has not signed in");
-        }
-        if(userAuthEntity.getLogoutAt() != null){
-            throw new AuthorizationFailedException( "ATHR-002", "User is signed out");
-        }
         if(!userAuthEntity.getUserEntity().getRole().equals( "admin" )){
             throw new AuthorizationFailedException( "ATHR-003","Unauthorized Access, Entered user is not an admin" );
         }
@@ -40,7 +40,11 @@ public class AdminService {
             throw new UserNotFoundException( "USR-001","User with entered uuid to be deleted does not exist" );
         }
 
+        // Before the delete, which cascades to the questions and answers the index has to drop
+        this.questionSearchEngine.userDeleted( existingUser.getId() );
         UserEntity deletedUser = this.userDao.deleteUser( userId );
+        this.listingVersions.userDeleted( existingUser.getUuid() );
+        this.accessTokenService.revokeUser( existingUser.getId() );
         return deletedUser;
     }
 }
\ No newline at end of file
@@ -8,8 +8,12 @@ import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
+import com.upgrad.quora.service.model.AnswerSummary;
+import com.upgrad.quora.service.search.QuestionSearchEngine;
 import com.upgrad.quora.service.util.QuoraUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,14 +29,23 @@ public class AnswerBusinessService {
     private QuestionDao questionDao;
 
     @Autowired
-    private UserBusinessService userBusinessService;
+    private QuestionSearchEngine questionSearchEngine;
+
+    @Autowired
+    private ListingVersions listingVersions;
+
+    @Value("${quora.answer-bulk.max-answers:10000}")
+    private int maxBulkAnswers;
+
+    @Value("${quora.answer-bulk.batch-size:${spring.jpa.properties.hibernate.jdbc.batch_size:50}}")
+    private int bulkBatchSize;
 
     /**
      * This method is used to create answer for questions asked by users
      *
      * @param answer        for the particular question
      * @param questionId    for the question which needs to be answered
-     * @param authorization holds the Bearer access token for authenticating
+     * @param principal     principal of the request, holding the Bearer access token of the user
      * @return creates the answer for particular question by Id
      * @throws AuthorizationFailedException If the access token provided by the user does not exist
      *                                      in the database, If the user has signed out
@@ -40,10 +53,9 @@ public class AnswerBusinessService {
      *                                      is to be posted does not exist in the database
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity createAnswer(final AnswerEntity answer, final String questionId, final String authorization) throws
+    public AnswerEntity createAnswer(final AnswerEntity answer, final String questionId, final UserPrincipal principal) throws
             AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to post an answer");
+        UserAuthEntity userAuthEntity = principal.authorize("User is signed out.Sign in first to post an answer");
 
         QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
         if (questionEntity == null) {
@@ -55,7 +67,49 @@ public class AnswerBusinessService {
         }
         answer.setQuestion(questionEntity);
         answer.setUser(userAuthEntity.getUser());
-        return answerDao.createAnswer(answer);
+        answerDao.createAnswer(answer);
+        listingVersions.questionChanged(questionEntity);
+        questionSearchEngine.answerSaved(answer.getId(), questionEntity.getId(), answer.getAns());
+        return answer;
+    }
+
+    /**
+     * This method is used to create many answers for a question in one transaction.
+     * The access token and the question are validated once for all the answers
+     *
+     * @param answers       the answers for the particular question
+     * @param questionId    for the question which needs to be answered
+     * @param principal     principal of the request, holding the Bearer access token of the user
+     * @return the created answers in the same order
+     * @throws AuthorizationFailedException If the access token provided by the user does not exist
+     *                                      in the database, If the user has signed out
+     * @throws InvalidQuestionException     If the question uuid entered by the user whose answers
+     *                                      are to be posted does not exist in the database
+     * @throws InvalidRequestException      If there are no answers or more than the configured maximum
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public List<AnswerEntity> createAnswers(final List<AnswerEntity> answers, final String questionId, final UserPrincipal principal) throws
+            AuthorizationFailedException, InvalidQuestionException, InvalidRequestException {
+        UserAuthEntity userAuthEntity = principal.authorize("User is signed out.Sign in first to post an answer");
+        if (answers.isEmpty() || answers.size() > maxBulkAnswers) {
+            throw new InvalidRequestException("REQ-003", "Number of answers must be between 1 and " + maxBulkAnswers);
+        }
+
+        QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
+        if (questionEntity == null) {
+            throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
+        }
+        for (AnswerEntity answer : answers) {
+            answer.setQuestion(questionEntity);
+            answer.setUser(userAuthEntity.getUser());
+        }
+        // Before the answers are saved, since saving them detaches the question
+        listingVersions.questionChanged(questionEntity);
+        answerDao.createAnswers(answers, bulkBatchSize);
+        for (AnswerEntity answer : answers) {
+            questionSearchEngine.answerSaved(answer.getId(), questionEntity.getId(), answer.getAns());
+        }
+        return answers;
     }
 
     /**
@@ -64,35 +118,37 @@ public class AnswerBusinessService {
      *
      * @param answer        entity that needed to be updated
      * @param answerId      Is the uuid of the answer that needed to be edited
-     * @param authorization holds the Bearer access token for authenticating
+     * @param principal     principal of the request, holding the Bearer access token of the user
      * @return the answer after updating the content
      * @throws AuthorizationFailedException if access token does not exit, if user has signed out, if non-owner tries to edit
      * @throws AnswerNotFoundException      if answer with uuid which is to be edited does not exist in the database
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public AnswerEntity editAnswerContent(final AnswerEntity answer, final String answerId, final String authorization)
+    public AnswerEntity editAnswerContent(final AnswerEntity answer, final String answerId, final UserPrincipal principal)
             throws AuthorizationFailedException, AnswerNotFoundException {
-        UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to edit an answer");
+        UserAuthEntity userAuthEntity = principal.authorize("User is signed out.Sign in first to edit an answer");
         AnswerEntity answerEntity = answerDao.getAnswerByUUID(answerId);
         // If the answer with uuid which is to be edited does not exist in the database, throw 'AnswerNotFoundException'
         if (answerEntity == null) {
             throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
         } else {
             // if the user who is not the owner of the answer tries to edit the answer throw "AuthorizationFailedException"
-            if (answerEntity.getUser().getId() != userAuthEntity.getUser().getId()) {
+            if (!answerEntity.getUser().getId().equals(userAuthEntity.getUser().getId())) {
                 throw new AuthorizationFailedException("ATHR-003", "Only the answer owner can edit the answer");
             }
         }
         answerEntity.setAns(answer.getAns());
-        return answerDao.updateAnswerContent(answerEntity);
+        answerDao.updateAnswerContent(answerEntity);
+        listingVersions.questionChanged(answerEntity.getQuestion());
+        questionSearchEngine.answerSaved(answerEntity.getId(), answerEntity.getQuestion().getId(), answerEntity.getAns());
+        return answerEntity;
     }
 
     /**
      * This method validates Authorization for the user and returns the Id of the deleted answer
      *
      * @param answerId      UUid for particular answer
-     * @param authorization holds the Bearer access token for authenticating
+     * @param principal     principal of the request, holding the Bearer access token of the user
      * @return returns id of the answer
      * @throws AuthorizationFailedException If the access token provided by the user does not exist in the database,
      *                                      If the user has signed out, if the user who is not the owner of the answer
@@ -100,10 +156,9 @@ public class AnswerBusinessService {
      * @throws AnswerNotFoundException      If the answer with uuid which is to be deleted does not exist in the database
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public String deleteAnswer(String answerId, String authorization)
+    public String deleteAnswer(String answerId, UserPrincipal principal)
             throws AuthorizationFailedException, InvalidQuestionException, AnswerNotFoundException {
-        final UserAuthEntity userAuthEntity = userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to delete an answer");
+        final UserAuthEntity userAuthEntity = principal.authorize("User is signed out.Sign in first to delete an answer");
 
         AnswerEntity answer = answerDao.getAnswerByUUID(answerId);
         // If the answer with uuid which is to be deleted does not exist in the database
@@ -111,8 +166,10 @@ public class AnswerBusinessService {
             throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
         }
         if (QuoraUtil.ADMIN_ROLE.equalsIgnoreCase(userAuthEntity.getUser().getRole())
-                || answer.getUser().getId() == userAuthEntity.getUser().getId()) {
+                || answer.getUser().getId().equals(userAuthEntity.getUser().getId())) {
             answerDao.deleteAnswer(answer);
+            listingVersions.questionChanged(answer.getQuestion());
+            questionSearchEngine.answerDeleted(answer.getId());
             return answer.getUuid();
         }
         /*
@@ -122,19 +179,33 @@ public class AnswerBusinessService {
         throw new AuthorizationFailedException("ATHR-003", "Only the answer owner or admin can delete the answer");
     }
 
+    /**
+     * This method returns the ETag of the listing of the answers of a question after validating the authorization
+     * token, to be checked before the answers are fetched
+     *
+     * @param questionId    The UUID of the question whose answers are listed
+     * @param principal     principal of the request, holding the Bearer access token of the user
+     * @return ETag of the listing or null if conditional GET is disabled
+     * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
+     */
+    public String getAllAnswersToQuestionETag(String questionId, UserPrincipal principal) throws AuthorizationFailedException {
+        principal.authorize("User is signed out.Sign in first to get the answers");
+        return listingVersions.questionAnswersETag(questionId);
+    }
+
     /**
      * This method fetches all the answers posted to a Specific question referred by questionId
      * after validating the authorization token
      *
      * @param questionId    The UUID of the question for which answers are to be retrieved
-     * @param authorization holds the Bearer access token for authenticating the user
+     * @param principal     principal of the request, holding the Bearer access token of the user
      * @return The list of all answers posted for a specific question
      * @throws AuthorizationFailedException If the token is not present in DB or user already logged out
      * @throws InvalidQuestionException     If the Question with the uuid passed doesn't exist in DB
      */
-    public List<AnswerEntity> getAllAnswersToQuestion(String questionId, String authorization) throws AuthorizationFailedException, InvalidQuestionException {
-        userBusinessService.validateUserAuthentication(authorization,
-                "User is signed out.Sign in first to get the answers");
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<AnswerSummary> getAllAnswersToQuestion(String questionId, UserPrincipal principal) throws AuthorizationFailedException, InvalidQuestionException {
+        principal.authorize("User is signed out.Sign in first to get the answers");
         final QuestionEntity question = questionDao.getQuestionById(questionId);
         if (question == null) {
             throw new InvalidQuestionException("QUES-001", "The question with entered uuid whose details are to be seen does not exist");
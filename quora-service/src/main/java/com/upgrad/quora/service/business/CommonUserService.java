@@ -1,49 +1,37 @@
 package com.upgrad.quora.service.business;
 
-import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
-import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class CommonUserService {
 
-    @Autowired
-    UserAuthDao userAuthDao;
-
     @Autowired
     UserDao userDao;
 
     /**
-     * This method checks if access token exists in DB and user is still logged in.
-     * @param accessToken token to be validated.
-     * @throws AuthorizationFailedException ATHR-001 if the token doesn't exit in the DB , ATHR-002 if the user has already logged out using the token.
-     */
-    public void checkIfTokenIsValid(String accessToken) throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        }
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to get user details");
-        }
-    }
-
-    /**
-     * This method retrieves the user details based on userId.
+     * This method retrieves the user details based on userId, once the access token is found valid.
+     * The user is read by uuid even for the signed in user, whose cached session only carries their id, uuid and role.
+     * @param principal principal of the request, holding the access token of the user requesting the details.
      * @param userId Id of the user whose information is to be fetched.
      * @return
+     * @throws AuthorizationFailedException ATHR-001 if the token doesn't exit in the DB , ATHR-002 if the user has already logged out using the token.
      * @throws UserNotFoundException USR-001 if the user with given id does not exist in DB.
      */
-    public UserEntity getUserById(final String userId) throws UserNotFoundException {
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public UserEntity getUserById(final UserPrincipal principal, final String userId)
+            throws AuthorizationFailedException, UserNotFoundException {
+        principal.authorize("User is signed out.Sign in first to get user details");
         UserEntity userEntity = userDao.getUserById(userId);
         if (userEntity == null) {
             throw new UserNotFoundException("USR-001", "User with entered uuid does not exist");
         }
         return userEntity;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package com.upgrad.quora.service.business;
+
+/**
+ * Generates the uuid of new users, questions and answers. The implementation is picked with quora.id-generator by
+ * {@link com.upgrad.quora.service.IdGeneratorConfiguration}.
+ */
+public interface IdGenerator {
+
+    /**
+     * @return a new identifier in the canonical 36 character UUID format.
+     */
+    String nextId();
+}
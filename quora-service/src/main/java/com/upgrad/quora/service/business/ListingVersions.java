@@ -0,0 +1,215 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.util.TransactionCallbacks;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * In-process versions of the question and answer listings, used as strong ETags so that a client polling an unchanged
+ * listing gets a 304 without the listing being queried.
+ * <p>
+ * Every change takes the next value of one modification counter and stores it as the version of the listings it
+ * affects once its transaction commits, under one lock, so versions only move forward whatever order the commits
+ * finish in. Listings read their version before their data, so the data sent with an ETag is never older than the
+ * ETag. The ETag also holds an id of this instance, so that the ETags of a restarted
+ * or another instance never match. Only the changes made through this instance are seen, hence the feature is off
+ * unless quora.conditional-get.enabled is set.
+ * <p>
+ * With read replicas a listing may be read from a replica that has not replayed its latest change yet, so no ETag
+ * is given out for a listing changed within the replica lag allowance.
+ * <p>
+ * Only the quora.conditional-get.max-listings most recently used versions of the per-user and per-question listings
+ * are kept. A listing without a version of its own, because it was evicted, deleted or never changed, takes the
+ * latest version evicted or deleted, which is never older than the version it had.
+ */
+@Component
+public class ListingVersions {
+
+    private static final Version INITIAL = new Version(0, 0);
+
+    @Value("${quora.conditional-get.enabled:false}")
+    private boolean enabled;
+
+    @Value("${quora.conditional-get.max-listings:10000}")
+    private int maxListings;
+
+    @Value("${quora.datasource.replicas.urls:}")
+    private String replicaUrls;
+
+    @Value("${quora.datasource.replicas.max-lag-ms:1000}")
+    private long replicaMaxLagMillis;
+
+    @Value("${quora.datasource.replicas.check-interval-ms:1000}")
+    private long replicaCheckIntervalMillis;
+
+    private final String instance = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    // Everything below is guarded by this
+    private long modificationCounter;
+
+    // Bumped when rows go by ON DELETE CASCADE, which invalidates every listing at once
+    private Version resetVersion = INITIAL;
+
+    private Version allQuestionsVersion = INITIAL;
+
+    private Versions userQuestionsVersions;
+
+    private Versions questionAnswersVersions;
+
+    @PostConstruct
+    public void init() {
+        userQuestionsVersions = new Versions(maxListings);
+        questionAnswersVersions = new Versions(maxListings);
+    }
+
+    /**
+     * @return ETag of GET /question/all or null if conditional GET is disabled or replicas may not have the latest change yet.
+     */
+    public synchronized String allQuestionsETag() {
+        return eTag(allQuestionsVersion);
+    }
+
+    /**
+     * @param userUuid uuid of the user whose questions are listed.
+     * @return ETag of GET /question/all/{userId} or null if conditional GET is disabled or replicas may not have the latest change yet.
+     */
+    public synchronized String userQuestionsETag(final String userUuid) {
+        return eTag(userQuestionsVersions.version(userUuid));
+    }
+
+    /**
+     * @param questionUuid uuid of the question whose answers are listed.
+     * @return ETag of GET /answer/all/{questionId} or null if conditional GET is disabled or replicas may not have the latest change yet.
+     */
+    public synchronized String questionAnswersETag(final String questionUuid) {
+        return eTag(questionAnswersVersions.version(questionUuid));
+    }
+
+    /**
+     * A question, or one of its answers, was created, edited or deleted. The question listings show the answer
+     * count and the answer listing shows the question content, so all three listings change. The uuids of the
+     * question and of its owner are read right away, so call this while the question is still attached.
+     *
+     * @param question the question.
+     */
+    public void questionChanged(final QuestionEntity question) {
+        if (!enabled) {
+            return;
+        }
+        final String questionUuid = question.getUuid();
+        final String ownerUuid = question.getUserEntity().getUuid();
+        afterCommit(version -> {
+            allQuestionsVersion = version;
+            userQuestionsVersions.put(ownerUuid, version);
+            questionAnswersVersions.put(questionUuid, version);
+        });
+    }
+
+    /**
+     * A question was deleted, so its answers are not listed any more. The question listings change as in
+     * {@link #questionChanged(QuestionEntity)}.
+     *
+     * @param question the question.
+     */
+    public void questionDeleted(final QuestionEntity question) {
+        if (!enabled) {
+            return;
+        }
+        final String questionUuid = question.getUuid();
+        final String ownerUuid = question.getUserEntity().getUuid();
+        afterCommit(version -> {
+            allQuestionsVersion = version;
+            userQuestionsVersions.put(ownerUuid, version);
+            questionAnswersVersions.delete(questionUuid, version);
+        });
+    }
+
+    /**
+     * A user was deleted together with their questions and answers, so rows of any listing may have changed. The
+     * versions of the listings of the questions of the user are left to be evicted.
+     *
+     * @param userUuid uuid of the user.
+     */
+    public void userDeleted(final String userUuid) {
+        afterCommit(version -> {
+            resetVersion = version;
+            userQuestionsVersions.delete(userUuid, version);
+        });
+    }
+
+    private String eTag(final Version version) {
+        if (!enabled) {
+            return null;
+        }
+        final Version reset = resetVersion;
+        if (!replicaUrls.isEmpty()) {
+            // A replica is only read while its lag, checked on an interval, is below the maximum
+            final long changedAt = Math.max(version.changedAt, reset.changedAt);
+            if (System.currentTimeMillis() - changedAt < replicaMaxLagMillis + replicaCheckIntervalMillis) {
+                return null;
+            }
+        }
+        return instance + "." + reset.number + "." + version.number;
+    }
+
+    private void afterCommit(final Consumer<Version> change) {
+        if (enabled) {
+            TransactionCallbacks.afterCommit(() -> {
+                synchronized (this) {
+                    change.accept(new Version(++modificationCounter, System.currentTimeMillis()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Versions of the listings of one kind, in least recently used order.
+     */
+    private static final class Versions extends LinkedHashMap<String, Version> {
+        private final int maxSize;
+
+        // Latest version evicted or removed, standing in for every listing without a version of its own
+        private Version floor = INITIAL;
+
+        private Versions(final int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        private Version version(final String uuid) {
+            final Version version = get(uuid);
+            return version == null ? floor : version;
+        }
+
+        private void delete(final String uuid, final Version version) {
+            remove(uuid);
+            floor = version;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Version> eldest) {
+            if (size() > maxSize) {
+                floor = eldest.getValue().number > floor.number ? eldest.getValue() : floor;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Version {
+        private final long number;
+        private final long changedAt;
+
+        private Version(final long number, final long changedAt) {
+            this.number = number;
+            this.changedAt = changedAt;
+        }
+    }
+}
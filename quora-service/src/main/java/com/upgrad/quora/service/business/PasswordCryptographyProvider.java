@@ -17,20 +17,38 @@ import org.springframework.stereotype.Component;
 public class PasswordCryptographyProvider {
 
     private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
-    private static int HASHING_ITERATIONS = 1000;
+    public static final int DEFAULT_HASHING_ITERATIONS = 1000;
     private static int HASHING_KEY_LENGTH = 64;
+    private static final char ITERATIONS_SEPARATOR = '$';
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
     /**
-     * This method generates Salt and hashed Password
+     * This method generates Salt and hashed Password with the default iteration count
      *
      * @param password char array.
      * @return String array with [0] encoded salt [1] hashed password.
      */
     public static String[] encrypt(final String password) {
+        return encrypt(password, DEFAULT_HASHING_ITERATIONS);
+    }
+
+    /**
+     * This method generates Salt and hashed Password with the given iteration count.
+     * Unless it is the default, the iteration count is stored in front of the encoded salt ("iterations$salt")
+     * so that passwords hashed with an older setting can still be verified.
+     *
+     * @param password   char array.
+     * @param iterations PBKDF2 iteration count.
+     * @return String array with [0] encoded salt [1] hashed password.
+     */
+    public static String[] encrypt(final String password, final int iterations) {
         byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
-        return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
+        byte[] hashedPassword = hashPassword(password.toCharArray(), salt, iterations);
+        String encodedSalt = getBase64EncodedBytesAsString(salt);
+        if (iterations != DEFAULT_HASHING_ITERATIONS) {
+            encodedSalt = iterations + String.valueOf(ITERATIONS_SEPARATOR) + encodedSalt;
+        }
+        return new String[]{encodedSalt, bytesToHex(hashedPassword)};
     }
 
     /**
@@ -38,11 +56,17 @@ public class PasswordCryptographyProvider {
      * This will be used during authentication.
      *
      * @param password char array.
-     * @param salt     byte array.
+     * @param salt     encoded salt, optionally prefixed with the iteration count.
      * @return byte array of hashed password.
      */
     public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+        int iterations = DEFAULT_HASHING_ITERATIONS;
+        final int separator = salt.indexOf(ITERATIONS_SEPARATOR);
+        if (separator > 0) {
+            iterations = Integer.parseInt(salt.substring(0, separator));
+            salt = salt.substring(separator + 1);
+        }
+        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt), iterations));
     }
 
     /**
@@ -60,14 +84,15 @@ public class PasswordCryptographyProvider {
     /**
      * This method generates hashed Password
      *
-     * @param password char array.
-     * @param salt     byte array.
+     * @param password   char array.
+     * @param salt       byte array.
+     * @param iterations PBKDF2 iteration count.
      * @return byte array of hashed password.
      */
-    private static byte[] hashPassword(final char[] password, final byte[] salt) {
+    private static byte[] hashPassword(final char[] password, final byte[] salt, final int iterations) {
         try {
             SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
+            PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASHING_KEY_LENGTH);
             SecretKey key = skf.generateSecret(spec);
             byte[] res = key.getEncoded();
             return res;
@@ -0,0 +1,167 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.GenericErrorCode;
+import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the CPU bound PBKDF2 hashing of {@link PasswordCryptographyProvider} on a dedicated, bounded pool so that a
+ * burst of sign-in/sign-up requests cannot pin every servlet thread. When the pool and its queue are full the
+ * request fails fast with {@link ServiceOverloadedException} instead of queueing further. The queue depth, the busy
+ * threads, the rejections and the latency of the hashes are published as quora.password-hashing.* meters.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    public static final String QUEUE_GAUGE = "quora.password-hashing.queue";
+
+    public static final String ACTIVE_GAUGE = "quora.password-hashing.active";
+
+    public static final String REJECTED_COUNTER = "quora.password-hashing.rejected";
+
+    public static final String HASH_TIMER = "quora.password-hashing.hash";
+
+    @Value("${quora.password-hashing.pool-size:0}")
+    private int poolSize;
+
+    @Value("${quora.password-hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${quora.password-hashing.iterations:" + PasswordCryptographyProvider.DEFAULT_HASHING_ITERATIONS + "}")
+    private int iterations;
+
+    @Value("${quora.password-hashing.timeout-ms:5000}")
+    private long timeoutMillis;
+
+    @Value("${quora.password-hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    private Timer hashTimer;
+
+    @PostConstruct
+    public void init() {
+        final int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder(QUEUE_GAUGE, this, PasswordHashingExecutor::getQueueDepth)
+                    .description("Passwords waiting to be hashed").register(registry);
+            Gauge.builder(ACTIVE_GAUGE, this, PasswordHashingExecutor::getActiveCount)
+                    .description("Threads hashing a password").register(registry);
+            FunctionCounter.builder(REJECTED_COUNTER, rejectedCount, AtomicLong::get)
+                    .description("Sign ins and sign ups rejected with SVC-001").register(registry);
+            hashTimer = Timer.builder(HASH_TIMER)
+                    .description("Time to hash a password, without the wait in the queue").register(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Generates a salt and hashes the password with the configured iteration count.
+     *
+     * @param password raw password.
+     * @return String array with [0] encoded salt [1] hashed password.
+     * @throws ServiceOverloadedException SVC-001 if the hashing pool is saturated.
+     */
+    public String[] encrypt(final String password) throws ServiceOverloadedException {
+        return execute(() -> PasswordCryptographyProvider.encrypt(password, iterations));
+    }
+
+    /**
+     * Re-generates the hashed password from the raw password and the stored salt.
+     *
+     * @param password raw password.
+     * @param salt     encoded salt stored for the user.
+     * @return hashed password.
+     * @throws ServiceOverloadedException SVC-001 if the hashing pool is saturated.
+     */
+    public String encrypt(final String password, final String salt) throws ServiceOverloadedException {
+        return execute(() -> PasswordCryptographyProvider.encrypt(password, salt));
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private <T> T execute(final Callable<T> task) throws ServiceOverloadedException {
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                if (hashTimer == null) {
+                    return task.call();
+                }
+                return hashTimer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            throw overloaded();
+        }
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw overloaded();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw overloaded();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e.getCause());
+        }
+    }
+
+    private ServiceOverloadedException overloaded() {
+        rejectedCount.incrementAndGet();
+        return new ServiceOverloadedException("SVC-001", "Too many sign in or sign up requests, try again later", retryAfterSeconds);
+    }
+}
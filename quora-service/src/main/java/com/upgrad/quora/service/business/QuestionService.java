@@ -1,79 +1,328 @@
 package com.upgrad.quora.service.business;
 
 import com.upgrad.quora.service.dao.QuestionDao;
-import com.upgrad.quora.service.dao.UserAuthDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
+import com.upgrad.quora.service.exception.InvalidRequestException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
+import com.upgrad.quora.service.model.Page;
+import com.upgrad.quora.service.model.QuestionImportRecord;
+import com.upgrad.quora.service.model.QuestionImportReport;
+import com.upgrad.quora.service.model.QuestionSearchHit;
+import com.upgrad.quora.service.model.QuestionSummary;
+import com.upgrad.quora.service.search.QuestionSearchEngine;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
-import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 public class QuestionService {
 
-    @Autowired private UserAuthDao userAuthDao;
-
     @Autowired private UserDao userDao;
 
     @Autowired private QuestionDao questionDao;
 
+    @Autowired private TransactionTemplate transactionTemplate;
+
+    @Autowired private QuestionSearchEngine questionSearchEngine;
+
+    @Autowired private ListingVersions listingVersions;
+
+    @Autowired private IdGenerator idGenerator;
+
+    @Value("${quora.pagination.default-page-size:20}")
+    private int defaultPageSize;
+
+    @Value("${quora.pagination.max-page-size:100}")
+    private int maxPageSize;
+
+    @Value("${quora.pagination.stream-fetch-size:500}")
+    private int streamFetchSize;
+
+    @Value("${quora.question-import.batch-size:${spring.jpa.properties.hibernate.jdbc.batch_size:50}}")
+    private int importBatchSize;
+
+    @Value("${quora.question-import.max-reported-errors:100}")
+    private int maxReportedImportErrors;
+
+    /** Same bound as the content column of the question table. */
+    private static final int MAX_CONTENT_LENGTH = 500;
+
     /**
      * Creates question in the DB if the accessToken is valid.
      *
-     * @param accessToken accessToken of the user for valid authentication.
+     * @param principal principal of the request, holding the access token of the user.
      * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
      *     the user has already signed out.
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public QuestionEntity createQuestion(QuestionEntity questionEntity, final String accessToken)
+    public QuestionEntity createQuestion(QuestionEntity questionEntity, final UserPrincipal principal)
             throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to post a question");
-        }
+        UserAuthEntity userAuthEntity = principal.authorize(
+                "User is signed out.Sign in first to post a question");
         questionEntity.setDate(ZonedDateTime.now());
-        questionEntity.setUuid(UUID.randomUUID().toString());
+        questionEntity.setUuid(idGenerator.nextId());
         questionEntity.setUserEntity(userAuthEntity.getUserEntity());
-        return questionDao.createQuestion(questionEntity);
+        questionDao.createQuestion(questionEntity);
+        questionSearchEngine.questionSaved(
+                questionEntity.getId(), questionEntity.getUuid(), questionEntity.getContent());
+        listingVersions.questionChanged(questionEntity);
+        return questionEntity;
     }
 
     /**
-     * Retrieves all the questions in the DB.
+     * Imports questions read from the given records, which are pulled one at a time so that the import never holds
+     * more than one batch in memory. The access token is validated once before the first record is read. Every
+     * batch of questions is saved in its own transaction, so a batch that cannot be saved does not undo the batches
+     * before it; its records are reported as failed together with the records that could not be read or are invalid.
      *
-     * @param accessToken accessToken of the user for valid authentication.
-     * @return List of QuestionEntity
+     * @param principal principal of the request, holding the access token of the user.
+     * @param records records to be imported, in the order of the request.
+     * @return QuestionImportReport with the number of imported questions and the records that were not imported.
      * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
      *     the user has already signed out.
      */
-    public List<QuestionEntity> getAllQuestions(final String accessToken)
+    public QuestionImportReport importQuestions(
+            final UserPrincipal principal, final Iterator<QuestionImportRecord> records)
             throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to get all questions");
+        UserAuthEntity userAuthEntity = principal.authorize(
+                "User is signed out.Sign in first to import questions");
+        final UserEntity user = userAuthEntity.getUserEntity();
+        final QuestionImportReport report = new QuestionImportReport(maxReportedImportErrors);
+        final List<QuestionEntity> batch = new ArrayList<>(importBatchSize);
+        final List<Integer> batchRecords = new ArrayList<>(importBatchSize);
+        while (records.hasNext()) {
+            final QuestionImportRecord record = records.next();
+            final String error = record.getError() != null ? record.getError() : validateContent(record.getContent());
+            if (error != null) {
+                report.addFailure(record.getRecord(), error);
+                continue;
+            }
+            QuestionEntity questionEntity = new QuestionEntity();
+            questionEntity.setContent(record.getContent());
+            questionEntity.setDate(ZonedDateTime.now());
+            questionEntity.setUuid(idGenerator.nextId());
+            questionEntity.setUserEntity(user);
+            batch.add(questionEntity);
+            batchRecords.add(record.getRecord());
+            if (batch.size() == importBatchSize) {
+                saveImportBatch(batch, batchRecords, report);
+            }
         }
+        saveImportBatch(batch, batchRecords, report);
+        return report;
+    }
+
+    private void saveImportBatch(
+            final List<QuestionEntity> batch, final List<Integer> batchRecords, final QuestionImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.execute(status -> questionDao.createQuestions(batch, importBatchSize));
+            report.addImported(batch.size());
+            for (QuestionEntity questionEntity : batch) {
+                questionSearchEngine.questionSaved(
+                        questionEntity.getId(), questionEntity.getUuid(), questionEntity.getContent());
+                listingVersions.questionChanged(questionEntity);
+            }
+        } catch (DataAccessException | TransactionException e) {
+            for (Integer record : batchRecords) {
+                report.addFailure(record, "Question could not be saved");
+            }
+        }
+        batch.clear();
+        batchRecords.clear();
+    }
+
+    private static String validateContent(final String content) {
+        if (content == null || content.trim().isEmpty()) {
+            return "Question content is required";
+        } else if (content.length() > MAX_CONTENT_LENGTH) {
+            return "Question content must be at most " + MAX_CONTENT_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves all the questions in the DB.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @return List of QuestionSummary
+     * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+     *     the user has already signed out.
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<QuestionSummary> getAllQuestions(final UserPrincipal principal)
+            throws AuthorizationFailedException {
+        principal.authorize("User is signed out.Sign in first to get all questions");
         return questionDao.getAllQuestions();
     }
 
+    /**
+     * Returns the ETag of the listing of all the questions, to be checked before the questions are retrieved.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @return ETag of the listing or null if conditional GET is disabled.
+     * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+     *     the user has already signed out.
+     */
+    public String getAllQuestionsETag(final UserPrincipal principal) throws AuthorizationFailedException {
+        principal.authorize("User is signed out.Sign in first to get all questions");
+        return listingVersions.allQuestionsETag();
+    }
+
+    /**
+     * Retrieves a page of questions, newest first, using keyset pagination on (date, id).
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param cursor nextCursor of the previous page, null for the first page.
+     * @param limit maximum number of questions in the page, null for the default page size.
+     * @return Page of QuestionSummary
+     * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+     *     the user has already signed out.
+     * @throws InvalidRequestException REQ-001 if the cursor is malformed. REQ-002 if the limit is not positive.
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public Page<QuestionSummary> getQuestionsPage(
+            final UserPrincipal principal, final String cursor, final Integer limit)
+            throws AuthorizationFailedException, InvalidRequestException {
+        principal.authorize("User is signed out.Sign in first to get all questions");
+        if (limit != null && limit < 1) {
+            throw new InvalidRequestException("REQ-002", "Page size must be greater than zero");
+        }
+        final int pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+
+        ZonedDateTime afterDate = null;
+        Integer afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                final String decoded =
+                        new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                final int separator = decoded.lastIndexOf('_');
+                afterDate =
+                        ZonedDateTime.ofInstant(
+                                Instant.parse(decoded.substring(0, separator)), ZoneId.systemDefault());
+                afterId = Integer.valueOf(decoded.substring(separator + 1));
+            } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+                throw new InvalidRequestException("REQ-001", "Entered cursor is invalid");
+            }
+        }
+
+        // One extra row tells whether there is a next page
+        List<QuestionSummary> questions = questionDao.getQuestionsPage(afterDate, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (questions.size() > pageSize) {
+            questions = questions.subList(0, pageSize);
+            final QuestionSummary last = questions.get(pageSize - 1);
+            final String position = last.getDate().toInstant().toString() + "_" + last.getId();
+            nextCursor =
+                    Base64.getUrlEncoder()
+                            .withoutPadding()
+                            .encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+        return new Page<>(questions, nextCursor);
+    }
+
+    /**
+     * Searches the questions by the words in their content or in their answers, best match first, with the
+     * in-memory search engine when quora.search.backend is memory and with the database otherwise. Ranked results
+     * have no stable key to continue from, so the cursor of a search page holds the number of questions already
+     * returned.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param query words to search for.
+     * @param cursor nextCursor of the previous page, null for the first page.
+     * @param limit maximum number of questions in the page, null for the default page size.
+     * @return Page of QuestionSearchHit
+     * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+     *     the user has already signed out.
+     * @throws InvalidRequestException REQ-001 if the cursor is malformed. REQ-002 if the limit is not positive.
+     *     REQ-004 if the query is blank.
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public Page<QuestionSearchHit> searchQuestions(
+            final UserPrincipal principal, final String query, final String cursor, final Integer limit)
+            throws AuthorizationFailedException, InvalidRequestException {
+        principal.authorize("User is signed out.Sign in first to search questions");
+        if (query == null || query.trim().isEmpty()) {
+            throw new InvalidRequestException("REQ-004", "Search query must not be empty");
+        }
+        if (limit != null && limit < 1) {
+            throw new InvalidRequestException("REQ-002", "Page size must be greater than zero");
+        }
+        final int pageSize = limit == null ? defaultPageSize : Math.min(limit, maxPageSize);
+
+        int offset = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            try {
+                offset = Integer.parseInt(
+                        new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidRequestException("REQ-001", "Entered cursor is invalid");
+            }
+            if (offset < 0) {
+                throw new InvalidRequestException("REQ-001", "Entered cursor is invalid");
+            }
+        }
+
+        // One extra row tells whether there is a next page
+        List<QuestionSearchHit> hits =
+                questionSearchEngine.isEnabled()
+                        ? questionSearchEngine.search(query, offset, pageSize + 1)
+                        : questionDao.searchQuestions(query, offset, pageSize + 1);
+        String nextCursor = null;
+        if (hits.size() > pageSize) {
+            hits = hits.subList(0, pageSize);
+            nextCursor =
+                    Base64.getUrlEncoder()
+                            .withoutPadding()
+                            .encodeToString(
+                                    String.valueOf(offset + pageSize).getBytes(StandardCharsets.UTF_8));
+        }
+        return new Page<>(hits, nextCursor);
+    }
+
+    /**
+     * Streams all the questions in the DB, newest first, without materializing them in a list.
+     * The access token is validated before the first question is handed to the consumer.
+     *
+     * @param principal principal of the request, holding the access token of the user.
+     * @param consumer receives every question.
+     * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+     *     the user has already signed out.
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void streamAllQuestions(final UserPrincipal principal, final Consumer<QuestionSummary> consumer)
+            throws AuthorizationFailedException {
+        principal.authorize("User is signed out.Sign in first to get all questions");
+        questionDao.forEachQuestion(streamFetchSize, consumer);
+    }
+
     /**
      * * Edit the question
      *
-     * @param accessToken accessToken of the user for valid authentication.
+     * @param principal principal of the request, holding the access token of the user.
      * @param questionId id of the question to be edited.
      * @param content new content for the existing question.
      * @return QuestionEntity
@@ -83,16 +332,11 @@ public class QuestionService {
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public QuestionEntity editQuestion(
-            final String accessToken, final String questionId, final String content)
+            final UserPrincipal principal, final String questionId, final String content)
             throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to edit the question");
-        }
-        QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
+        UserAuthEntity userAuthEntity = principal.authorize(
+                "User is signed out.Sign in first to edit the question");
+        QuestionEntity questionEntity = questionDao.getQuestionWithOwnerById(questionId);
         if (questionEntity == null) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
@@ -105,13 +349,16 @@ public class QuestionService {
         }
         questionEntity.setContent(content);
         questionDao.updateQuestion(questionEntity);
+        questionSearchEngine.questionSaved(
+                questionEntity.getId(), questionEntity.getUuid(), questionEntity.getContent());
+        listingVersions.questionChanged(questionEntity);
         return questionEntity;
     }
 
     /**
      * * Delete the question
      *
-     * @param accessToken accessToken of the user for valid authentication.
+     * @param principal principal of the request, holding the access token of the user.
      * @param questionId id of the question to be deleted.
      * @return QuestionEntity
      * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
@@ -119,16 +366,11 @@ public class QuestionService {
      * @throws InvalidQuestionException if the question with id doesn't exist.
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public QuestionEntity deleteQuestion(final String accessToken, final String questionId)
+    public QuestionEntity deleteQuestion(final UserPrincipal principal, final String questionId)
             throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to delete the question");
-        }
-        QuestionEntity questionEntity = questionDao.getQuestionById(questionId);
+        UserAuthEntity userAuthEntity = principal.authorize(
+                "User is signed out.Sign in first to delete the question");
+        QuestionEntity questionEntity = questionDao.getQuestionWithOwnerById(questionId);
         if (questionEntity == null) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
@@ -139,28 +381,42 @@ public class QuestionService {
         }
 
         questionDao.deleteQuestion(questionEntity);
+        questionSearchEngine.questionDeleted(questionEntity.getId());
+        listingVersions.questionDeleted(questionEntity);
         return questionEntity;
     }
 
+    /**
+     * Returns the ETag of the listing of the questions posted by a specific user, to be checked before the questions
+     * are retrieved.
+     *
+     * @param userId userId of the user whose questions are listed.
+     * @param principal principal of the request, holding the access token of the user.
+     * @return ETag of the listing or null if conditional GET is disabled.
+     * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
+     *     the user has already signed out.
+     */
+    public String getAllQuestionsByUserETag(final String userId, final UserPrincipal principal)
+            throws AuthorizationFailedException {
+        principal.authorize(
+                "User is signed out.Sign in first to get all questions posted by a specific user");
+        return listingVersions.userQuestionsETag(userId);
+    }
+
     /**
      * Retrieves all the questions posted by a specific user.
      *
      * @param userId userId of the user whose questions have to be retrieved
-     * @param accessToken accessToken of the user for valid authentication.
-     * @return List of QuestionEntity
+     * @param principal principal of the request, holding the access token of the user.
+     * @return List of QuestionSummary
      * @throws AuthorizationFailedException ATHR-001 - if user token is not present in DB. ATHR-002 if
      *     the user has already signed out.
      */
-    public List<QuestionEntity> getAllQuestionsByUser(final String userId, final String accessToken)
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public List<QuestionSummary> getAllQuestionsByUser(final String userId, final UserPrincipal principal)
             throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = userAuthDao.getUserAuthByToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002",
-                    "User is signed out.Sign in first to get all questions posted by a specific user");
-        }
+        principal.authorize(
+                "User is signed out.Sign in first to get all questions posted by a specific user");
         UserEntity user = userDao.getUserById(userId);
         if (user == null) {
             throw new UserNotFoundException(
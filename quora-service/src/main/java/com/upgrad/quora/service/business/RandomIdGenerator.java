@@ -0,0 +1,15 @@
+package com.upgrad.quora.service.business;
+
+import java.util.UUID;
+
+/**
+ * Random (version 4) UUIDs, as generated before {@link TimeOrderedIdGenerator}. Every call draws from the shared
+ * SecureRandom, and new keys land anywhere in the uuid indexes.
+ */
+public class RandomIdGenerator implements IdGenerator {
+
+    @Override
+    public String nextId() {
+        return UUID.randomUUID().toString();
+    }
+}
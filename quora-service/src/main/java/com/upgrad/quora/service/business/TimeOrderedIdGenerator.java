@@ -0,0 +1,85 @@
+package com.upgrad.quora.service.business;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Time-ordered UUIDs laid out as version 7: 48 bits of Unix time in milliseconds, the version, 12 bits of sequence,
+ * the variant and 62 random bits. Their text sorts by creation time to the millisecond, so new keys are appended at
+ * the right edge of the uuid indexes instead of landing on random pages.
+ * <p>
+ * Each thread has its own sequence and draws from ThreadLocalRandom, so generating an id takes no lock. The ids of one
+ * thread are strictly increasing: the sequence starts at a random value in the lower half of its range every
+ * millisecond and is incremented within it, and the time is carried forward if the sequence runs out or the clock goes
+ * back.
+ */
+public class TimeOrderedIdGenerator implements IdGenerator {
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final long VERSION = 0x7000L;
+
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private static final int MAX_SEQUENCE = 0xFFF;
+
+    private static final ThreadLocal<Sequence> SEQUENCE = ThreadLocal.withInitial(Sequence::new);
+
+    @Override
+    public String nextId() {
+        return nextId(System.currentTimeMillis());
+    }
+
+    /**
+     * @param now current time in milliseconds, as read from the clock.
+     * @return the next id of the current thread.
+     */
+    String nextId(final long now) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final Sequence sequence = SEQUENCE.get();
+        sequence.next(now, random);
+        final long mostSignificant = (sequence.millis << 16) | VERSION | sequence.value;
+        final long leastSignificant = (random.nextLong() >>> 2) | VARIANT;
+        return format(mostSignificant, leastSignificant);
+    }
+
+    private static String format(final long mostSignificant, final long leastSignificant) {
+        final char[] chars = new char[36];
+        digits(chars, 0, mostSignificant >>> 32, 8);
+        chars[8] = '-';
+        digits(chars, 9, mostSignificant >>> 16, 4);
+        chars[13] = '-';
+        digits(chars, 14, mostSignificant, 4);
+        chars[18] = '-';
+        digits(chars, 19, leastSignificant >>> 48, 4);
+        chars[23] = '-';
+        digits(chars, 24, leastSignificant, 12);
+        return new String(chars);
+    }
+
+    private static void digits(final char[] chars, final int offset, long value, final int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = HEX_DIGITS[(int) value & 0xF];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * The time and sequence of the last id generated by a thread.
+     */
+    private static final class Sequence {
+        private long millis;
+        private int value;
+
+        private void next(final long now, final ThreadLocalRandom random) {
+            if (now > millis) {
+                millis = now;
+                value = random.nextInt(MAX_SEQUENCE / 2 + 1);
+            } else if (value < MAX_SEQUENCE) {
+                value++;
+            } else {
+                millis++;
+                value = random.nextInt(MAX_SEQUENCE / 2 + 1);
+            }
+        }
+    }
+}
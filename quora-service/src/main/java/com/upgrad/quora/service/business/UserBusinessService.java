@@ -6,7 +6,7 @@ import com.upgrad.quora.service.common.UnexpectedException;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
-import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.ServiceOverloadedException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import com.upgrad.quora.service.util.QuoraUtil;
@@ -23,8 +23,14 @@ public class UserBusinessService {
     @Autowired
     private UserDao userDao;
 
+    @Autowired
+    private AccessTokenService accessTokenService;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
     @Transactional(propagation = Propagation.REQUIRED)
-    public UserEntity signup(UserEntity userEntity) throws SignUpRestrictedException {
+    public UserEntity signup(UserEntity userEntity) throws SignUpRestrictedException, ServiceOverloadedException {
         if (userDao.getUserByUserName(userEntity.getUserName()) != null) {
             throw new SignUpRestrictedException("SGR-001", "Try any other Username, this Username has already been taken");
         }
@@ -33,7 +39,7 @@ public class UserBusinessService {
         }
         String password = userEntity.getPassword();
         if (password != null) {
-            String[] encryptedText = PasswordCryptographyProvider.encrypt(password);
+            String[] encryptedText = passwordHashingExecutor.encrypt(password);
             userEntity.setSalt(encryptedText[0]);
             userEntity.setPassword(encryptedText[1]);
             return userDao.createUser(userEntity);
@@ -43,29 +49,26 @@ public class UserBusinessService {
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity signIn(String authorization) throws AuthenticationFailedException {
+    public UserAuthEntity signIn(String authorization) throws AuthenticationFailedException, ServiceOverloadedException {
         //this will be used to decode the request header authorization
 
         try {
-            byte[] decode = Base64.getDecoder().decode(authorization.split(QuoraUtil.BASIC_TOKEN)[0]);
-            String decodedText = new String(decode);
-            String[] decodedArray = decodedText.split(QuoraUtil.COLON);
-            String username = decodedArray[0];
-            String password = decodedArray[1];
+            String[] credentials = decodeBasicAuthorization(authorization);
+            String username = credentials[0];
+            String password = credentials[1];
             UserEntity user = userDao.getUserByUserName(username);
             if (user == null) {
                 throw new AuthenticationFailedException("ATH-001", "This username does not exist");
             }
 
-            final String encryptedPassword = PasswordCryptographyProvider.encrypt(password, user.getSalt());
+            final String encryptedPassword = passwordHashingExecutor.encrypt(password, user.getSalt());
             if (encryptedPassword.equals(user.getPassword())) {
 
-                JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
                 UserAuthEntity userAuthTokenEntity = new UserAuthEntity();
                 userAuthTokenEntity.setUser(user);
                 final ZonedDateTime now = ZonedDateTime.now();
-                final ZonedDateTime expiresAt = now.plusHours(8);
-                userAuthTokenEntity.setAccessToken(jwtTokenProvider.generateToken(user.getUuid(), now, expiresAt));
+                final ZonedDateTime expiresAt = now.plus(AccessTokenService.ACCESS_TOKEN_VALIDITY);
+                userAuthTokenEntity.setAccessToken(accessTokenService.generateAccessToken(user, encryptedPassword, now, expiresAt));
                 userAuthTokenEntity.setLoginAt(now);
                 userAuthTokenEntity.setExpiresAt(expiresAt);
                 userAuthTokenEntity.setUuid(user.getUuid());
@@ -81,17 +84,29 @@ public class UserBusinessService {
         }
     }
 
+    /**
+     * Decodes the Base64 encoded "username:password" credentials of the sign in authorization header.
+     *
+     * @param authorization authorization header sent for sign in.
+     * @return String array with [0] username [1] password.
+     * @throws ArrayIndexOutOfBoundsException if the decoded text has no password part.
+     * @throws IllegalArgumentException if the header is not valid Base64.
+     */
+    public static String[] decodeBasicAuthorization(final String authorization) {
+        byte[] decode = Base64.getDecoder().decode(authorization.split(QuoraUtil.BASIC_TOKEN)[0]);
+        String decodedText = new String(decode);
+        String[] decodedArray = decodedText.split(QuoraUtil.COLON);
+        return new String[]{decodedArray[0], decodedArray[1]};
+    }
+
     @Transactional(propagation = Propagation.REQUIRED)
-    public String getUserUUID(String authorization) throws SignOutRestrictedException {
-        String[] bearerToken = authorization.split(QuoraUtil.BEARER_TOKEN);
+    public String getUserUUID(final String authorization) throws SignOutRestrictedException {
         // If Bearer Token prefix is missed, ignore and just use the authorization text
-        if (bearerToken != null && bearerToken.length > 1) {
-            authorization = bearerToken[1];
-        }
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
+        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(AccessTokenService.parseBearerToken(authorization));
         if (isUserSessionValid(userAuthEntity)) {
             userAuthEntity.setLogoutAt(ZonedDateTime.now());
             userDao.updateUserAuthEntity(userAuthEntity);
+            accessTokenService.revoke(userAuthEntity.getAccessToken());
             return userAuthEntity.getUuid();
         }
         throw new SignOutRestrictedException("SGR-001", "User is not Signed in");
@@ -101,23 +116,4 @@ public class UserBusinessService {
         // userAuthEntity will be non null only if token exists in DB, and logoutAt null indicates user has not logged out yet
         return (userAuthEntity != null && userAuthEntity.getLogoutAt() == null);
     }
-
-    public UserAuthEntity validateUserAuthentication(String authorization, String athr002Message)
-            throws AuthorizationFailedException {
-        String[] bearerToken = authorization.split("Bearer");
-        // If Bearer Token prefix is missed, ignore and just use the authorization text
-        if (bearerToken != null && bearerToken.length > 1) {
-            authorization = bearerToken[1];
-        }
-        UserAuthEntity userAuthEntity = userDao.getUserAuthToken(authorization);
-        // Token is not matched with the database records
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        }
-        // Token matches, but the user has already logged out
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", athr002Message);
-        }
-        return userAuthEntity;
-    }
 }
@@ -0,0 +1,63 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+
+/**
+ * The access token a request was sent with and the user session it resolves to.
+ * <p>
+ * One principal is created per request from its authorization header and handed to the services, which authorize it
+ * with the message of their own endpoint. The session is looked up on the first call only, within the transaction of
+ * the service that makes it, and the same session is returned to every later call of the request. Not thread safe;
+ * the work of a request runs on one thread at a time.
+ */
+public final class UserPrincipal {
+
+    private final AccessTokenService accessTokenService;
+
+    private final String accessToken;
+
+    private boolean resolved;
+
+    private UserAuthEntity session;
+
+    UserPrincipal(final AccessTokenService accessTokenService, final String accessToken) {
+        this.accessTokenService = accessTokenService;
+        this.accessToken = accessToken;
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    /**
+     * @return the user session of the access token, null if the token is unknown.
+     */
+    public UserAuthEntity getSession() {
+        if (!resolved) {
+            session = accessTokenService.getUserAuthByToken(accessToken);
+            resolved = true;
+        }
+        return session;
+    }
+
+    /**
+     * Checks that the access token belongs to a user who is still signed in.
+     *
+     * @param signedOutMessage message of the ATHR-002 error, specific to the endpoint.
+     * @return the user session of the access token.
+     * @throws AuthorizationFailedException ATHR-001 if the token is unknown, ATHR-002 if the user has signed out.
+     */
+    public UserAuthEntity authorize(final String signedOutMessage) throws AuthorizationFailedException {
+        final UserAuthEntity userAuthEntity = getSession();
+        // Token is not matched with the database records
+        if (userAuthEntity == null) {
+            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+        }
+        // Token matches, but the user has already logged out
+        if (userAuthEntity.getLogoutAt() != null) {
+            throw new AuthorizationFailedException("ATHR-002", signedOutMessage);
+        }
+        return userAuthEntity;
+    }
+}
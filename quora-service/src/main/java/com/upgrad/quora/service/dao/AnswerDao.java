@@ -1,12 +1,19 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.AnswerEntity;
+import com.upgrad.quora.service.model.AnswerContent;
+import com.upgrad.quora.service.model.AnswerSummary;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public class AnswerDao {
@@ -26,7 +33,27 @@ public class AnswerDao {
     }
 
     /**
-     * This method is to get a answer by uuid from db
+     * Saves many answers, flushing them as JDBC batches of the given size and clearing the persistence context
+     * after every batch so that memory use does not grow with the number of answers
+     *
+     * @param answers   answers to be saved, with their question and user set
+     * @param batchSize number of answers inserted per flush, should match hibernate.jdbc.batch_size
+     * @return the saved answers
+     */
+    public List<AnswerEntity> createAnswers(final List<AnswerEntity> answers, final int batchSize) {
+        for (int i = 0; i < answers.size(); i++) {
+            entityManager.persist(answers.get(i));
+            if ((i + 1) % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        return answers;
+    }
+
+    /**
+     * This method is to get a answer by uuid from db, together with the user who posted it
      *
      * @param answerUUID is the uuid of answer to get from db
      * @return the answer present in db
@@ -60,13 +87,44 @@ public class AnswerDao {
     }
 
     /**
-     * Retrieves all the answer records based on the question
+     * Retrieves the uuid and content of all the answers of the question along with the question content
      *
      * @param questionId The question Id attribute to pull the answers with foreign key value
      * @return The list of all answers matched with the question Id
      */
-    public List<AnswerEntity> getAllAnswersByQuestionId(Integer questionId) {
-        return entityManager.createNamedQuery("answerByQuestionId", AnswerEntity.class).setParameter("questionId", questionId).getResultList();
+    public List<AnswerSummary> getAllAnswersByQuestionId(Integer questionId) {
+        return entityManager.createNamedQuery("answerByQuestionId", AnswerSummary.class).setParameter("questionId", questionId).getResultList();
+    }
+
+    /**
+     * Retrieves the ids of all the answers posted by a user
+     *
+     * @param userId id of the user
+     * @return ids of the answers of the user
+     */
+    public List<Integer> getAnswerIdsByUser(final Integer userId) {
+        return entityManager.createNamedQuery("answerIdsByUser", Integer.class).setParameter("userId", userId).getResultList();
+    }
+
+    /**
+     * Scrolls through the content of all the answers without loading them all in memory.
+     * Must be called inside a transaction so that the JDBC driver can use a server side cursor
+     *
+     * @param fetchSize number of rows fetched per round trip
+     * @param consumer  receives every answer
+     */
+    public void forEachAnswerContent(final int fetchSize, final Consumer<AnswerContent> consumer) {
+        final Session session = entityManager.unwrap(Session.class);
+        final Query<AnswerContent> query = session.createNamedQuery("allAnswerContents", AnswerContent.class);
+        query.setFetchSize(fetchSize);
+        final ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                consumer.accept((AnswerContent) results.get(0));
+            }
+        } finally {
+            results.close();
+        }
     }
 
 }
@@ -2,12 +2,23 @@ package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.model.QuestionSearchHit;
+import com.upgrad.quora.service.model.QuestionSummary;
+import com.upgrad.quora.service.util.SearchHighlights;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.query.Query;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public class QuestionDao {
@@ -25,30 +36,136 @@ public class QuestionDao {
         return questionEntity;
     }
 
+    /**
+     * Persist many questions, flushing them as JDBC batches of the given size and clearing the persistence context
+     * after every batch. Imported questions are not put in the second-level cache.
+     *
+     * @param questions questions to be persisted.
+     * @param batchSize number of questions inserted per flush, should match hibernate.jdbc.batch_size.
+     * @return Persisted questions.
+     */
+    public List<QuestionEntity> createQuestions(final List<QuestionEntity> questions, final int batchSize) {
+        final Session session = entityManager.unwrap(Session.class);
+        final CacheMode cacheMode = session.getCacheMode();
+        session.setCacheMode(CacheMode.IGNORE);
+        try {
+            for (int i = 0; i < questions.size(); i++) {
+                session.persist(questions.get(i));
+                if ((i + 1) % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.flush();
+            session.clear();
+        } finally {
+            session.setCacheMode(cacheMode);
+        }
+        return questions;
+    }
+
     /**
      * Fetch all the questions from the DB.
      *
-     * @return List of QuestionEntity
+     * @return List of QuestionSummary
+     */
+    public List<QuestionSummary> getAllQuestions() {
+        return entityManager.createNamedQuery("getAllQuestions", QuestionSummary.class).getResultList();
+    }
+
+    /**
+     * Fetch a page of questions ordered from newest to oldest.
+     *
+     * @param afterDate date of the last question of the previous page, null for the first page.
+     * @param afterId id of the last question of the previous page, null for the first page.
+     * @param maxResults maximum number of questions to be fetched.
+     * @return List of QuestionSummary
      */
-    public List<QuestionEntity> getAllQuestions() {
-        return entityManager.createNamedQuery("getAllQuestions", QuestionEntity.class).getResultList();
+    public List<QuestionSummary> getQuestionsPage(final ZonedDateTime afterDate, final Integer afterId, final int maxResults) {
+        if (afterDate == null || afterId == null) {
+            return entityManager
+                    .createNamedQuery("getQuestionsFirstPage", QuestionSummary.class)
+                    .setMaxResults(maxResults)
+                    .getResultList();
+        }
+        return entityManager
+                .createNamedQuery("getQuestionsAfter", QuestionSummary.class)
+                .setParameter("date", afterDate)
+                .setParameter("id", afterId)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * Full-text search over the content of the questions and of their answers.
+     *
+     * @param query words to search for, in websearch_to_tsquery syntax.
+     * @param offset number of matching questions to skip.
+     * @param maxResults maximum number of questions to be fetched.
+     * @return List of QuestionSearchHit, best match first.
+     */
+    @SuppressWarnings("unchecked")
+    public List<QuestionSearchHit> searchQuestions(final String query, final int offset, final int maxResults) {
+        final List<QuestionSearchHit> hits = entityManager
+                .createNamedQuery("searchQuestions")
+                .setParameter("query", query)
+                .setParameter("offset", offset)
+                .setParameter("limit", maxResults)
+                .getResultList();
+        final List<QuestionSearchHit> escaped = new ArrayList<>(hits.size());
+        for (QuestionSearchHit hit : hits) {
+            escaped.add(new QuestionSearchHit(hit.getUuid(), hit.getContent(), hit.getRank(),
+                    SearchHighlights.toHtml(hit.getSnippet())));
+        }
+        return escaped;
     }
 
     /**
-     * Get the question for the given id.
+     * Scroll through all the questions from newest to oldest without loading them all in memory.
+     * Must be called inside a transaction so that the JDBC driver can use a server side cursor.
+     *
+     * @param fetchSize number of rows fetched per round trip.
+     * @param consumer receives every question.
+     */
+    public void forEachQuestion(final int fetchSize, final Consumer<QuestionSummary> consumer) {
+        final Session session = entityManager.unwrap(Session.class);
+        final Query<QuestionSummary> query = session.createNamedQuery("getQuestionsFirstPage", QuestionSummary.class);
+        query.setFetchSize(fetchSize);
+        final ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                consumer.accept((QuestionSummary) results.get(0));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    /**
+     * Get the question for the given id. The lookup is served from the second-level cache when possible.
      *
      * @param questionId id of the required question.
      * @return QuestionEntity if question with given id is found else null.
      */
     public QuestionEntity getQuestionById(final String questionId) {
-        try {
-            return entityManager
-                    .createNamedQuery("getQuestionById", QuestionEntity.class)
-                    .setParameter("uuid", questionId)
-                    .getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
+        return entityManager
+                .unwrap(Session.class)
+                .bySimpleNaturalId(QuestionEntity.class)
+                .load(questionId);
+    }
+
+    /**
+     * Get the question for the given id together with the user who posted it, for ownership checks.
+     *
+     * @param questionId id of the required question.
+     * @return QuestionEntity with its user loaded if question with given id is found else null.
+     */
+    public QuestionEntity getQuestionWithOwnerById(final String questionId) {
+        final QuestionEntity questionEntity = getQuestionById(questionId);
+        if (questionEntity != null) {
+            Hibernate.initialize(questionEntity.getUserEntity());
         }
+        return questionEntity;
     }
 
     /**
@@ -73,12 +190,25 @@ public class QuestionDao {
      * Fetch all the questions from the DB.
      *
      * @param userId userId of the user whose list of asked questions has to be retrieved
-     * @return List of QuestionEntity
+     * @return List of QuestionSummary
      */
-    public List<QuestionEntity> getAllQuestionsByUser(final UserEntity userId) {
+    public List<QuestionSummary> getAllQuestionsByUser(final UserEntity userId) {
         return entityManager
-                .createNamedQuery("getQuestionByUser", QuestionEntity.class)
+                .createNamedQuery("getQuestionByUser", QuestionSummary.class)
                 .setParameter("user", userId)
                 .getResultList();
     }
+
+    /**
+     * Fetch the ids of all the questions of a user.
+     *
+     * @param userId id of the user.
+     * @return ids of the questions asked by the user.
+     */
+    public List<Integer> getQuestionIdsByUser(final Integer userId) {
+        return entityManager
+                .createNamedQuery("questionIdsByUser", Integer.class)
+                .setParameter("userId", userId)
+                .getResultList();
+    }
 }
\ No newline at end of file
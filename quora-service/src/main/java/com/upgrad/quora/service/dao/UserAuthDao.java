@@ -1,10 +1,13 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.List;
 
 @Repository
 public class UserAuthDao {
@@ -12,16 +15,37 @@ public class UserAuthDao {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private UserSessionCache userSessionCache;
+
     /**
      * Retrieves the user authentication information based on the access token.
+     * Sessions are served from the {@link UserSessionCache} when possible, in which case a detached copy is returned
+     * whose user only has its id, uuid and role.
      * @param accessToken access token of the user whose details is to be fetched.
      * @return A single user auth object or null
      */
     public UserAuthEntity getUserAuthByToken(final String accessToken) {
+        final UserSessionCache.UserSession session = userSessionCache.get(accessToken);
+        if (session != null) {
+            return session.toEntity();
+        }
+        final long readEpoch = userSessionCache.currentEpoch();
         try {
-            return entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class).setParameter("accessToken", accessToken).getSingleResult();
+            final UserAuthEntity userAuthEntity = entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class).setParameter("accessToken", accessToken).getSingleResult();
+            userSessionCache.put(userAuthEntity, readEpoch);
+            return userAuthEntity;
         } catch (NoResultException exception) {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves the access tokens that were signed out but have not expired yet.
+     * @param now current time.
+     * @return list of access tokens
+     */
+    public List<String> getSignedOutAccessTokens(final ZonedDateTime now) {
+        return entityManager.createNamedQuery("signedOutAccessTokens", String.class).setParameter("now", now).getResultList();
+    }
+}
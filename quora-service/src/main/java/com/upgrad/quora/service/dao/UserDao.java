@@ -1,7 +1,13 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.util.TransactionCallbacks;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
@@ -14,18 +20,20 @@ public class UserDao {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private UserAuthDao userAuthDao;
+
+    @Autowired
+    private UserSessionCache userSessionCache;
+
     /**
-     * Fetch a single user by given id from the database.
+     * Fetch a single user by given id from the database, or from the second-level cache when possible.
      *
      * @param userId Id of the user whose information is to be retrieved.
      * @return User details if exist in the DB else null.
      */
     public UserEntity getUserById(final String userId) {
-        try {
-            return entityManager.createNamedQuery("userByUserId", UserEntity.class).setParameter("userId", userId).getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
-        }
+        return entityManager.unwrap(Session.class).bySimpleNaturalId(UserEntity.class).load(userId);
     }
 
     /**
@@ -40,6 +48,11 @@ public class UserDao {
         UserEntity deleteUser = getUserById(userId);
         if (deleteUser != null) {
             this.entityManager.remove(deleteUser);
+            // USER_AUTH rows are removed by ON DELETE CASCADE, so the cached sessions have to go as well
+            userSessionCache.invalidateUser(deleteUser.getId());
+            // So are the questions of the user, which Hibernate does not know about
+            evictCachedQuestions();
+            TransactionCallbacks.afterCommit(this::evictCachedQuestions);
         }
         return deleteUser;
     }
@@ -72,13 +85,16 @@ public class UserDao {
 
     public void updateUserAuthEntity(final UserAuthEntity updatedUserAuthEntity) {
         entityManager.merge(updatedUserAuthEntity);
+        userSessionCache.invalidate(updatedUserAuthEntity.getAccessToken());
     }
 
     public UserAuthEntity getUserAuthToken(final String accessToken) {
-        try {
-            return entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class).setParameter("accessToken", accessToken).getSingleResult();
-        } catch (NoResultException nre) {
-            return null;
-        }
+        return userAuthDao.getUserAuthByToken(accessToken);
+    }
+
+    private void evictCachedQuestions() {
+        final Cache cache = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCache();
+        cache.evictEntityRegion(QuestionEntity.class);
+        cache.evictNaturalIdRegion(QuestionEntity.class);
     }
 }
\ No newline at end of file
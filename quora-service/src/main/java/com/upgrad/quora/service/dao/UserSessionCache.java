@@ -0,0 +1,318 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.util.TransactionCallbacks;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, TTL-aware cache of user sessions keyed by access token.
+ * It sits behind {@link UserAuthDao} so that repeated authorization checks for the same token
+ * do not run the "userAuthByAccessToken" query against USER_AUTH on every request. Hits, misses, evictions and the
+ * size are published as the cache.* meters of Micrometer with cache=user-sessions.
+ * <p>
+ * Reads take no lock: the sessions are kept in a {@link ConcurrentHashMap} and a hit only sets the reference bit of
+ * the session. Once the cache is full, a put evicts with the CLOCK algorithm, a hand sweeping the sessions that drops
+ * the first one not read since the hand last passed it. The tokens of every user are indexed so that deleting a user
+ * only removes their own sessions.
+ */
+@Component
+public class UserSessionCache {
+
+    public static final String CACHE_NAME = "user-sessions";
+
+    @Value("${quora.session-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${quora.session-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    // Bumped on every invalidation so that a session read from the DB before a concurrent sign-out is not cached.
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final ConcurrentHashMap<String, UserSession> sessions = new ConcurrentHashMap<>();
+
+    // user id -> access tokens of the user that may be cached; each set is only changed within a compute of its user
+    private final ConcurrentHashMap<Integer, Set<String>> tokensByUser = new ConcurrentHashMap<>();
+
+    // Hand of the clock, guarded by itself
+    private final Object evictionLock = new Object();
+    private Iterator<UserSession> hand;
+
+    @PostConstruct
+    public void init() {
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry != null) {
+            final Tags tags = Tags.of("cache", CACHE_NAME);
+            FunctionCounter.builder("cache.gets", hitCount, LongAdder::sum)
+                    .tags(tags).tag("result", "hit")
+                    .description("Sessions found in the cache").register(registry);
+            FunctionCounter.builder("cache.gets", missCount, LongAdder::sum)
+                    .tags(tags).tag("result", "miss")
+                    .description("Sessions read from USER_AUTH").register(registry);
+            FunctionCounter.builder("cache.evictions", evictionCount, LongAdder::sum)
+                    .tags(tags)
+                    .description("Sessions evicted by the clock or once expired").register(registry);
+            Gauge.builder("cache.size", this, UserSessionCache::getSize)
+                    .tags(tags)
+                    .description("Sessions in the cache").register(registry);
+        }
+    }
+
+    /**
+     * Returns the cached session for the access token.
+     *
+     * @param accessToken access token of the user.
+     * @return the cached session or null if it is not cached or has expired.
+     */
+    public UserSession get(final String accessToken) {
+        final UserSession session = sessions.get(accessToken);
+        if (session == null) {
+            missCount.increment();
+            return null;
+        }
+        if (session.cachedUntil < System.currentTimeMillis()) {
+            if (removeSession(session)) {
+                evictionCount.increment();
+            }
+            missCount.increment();
+            return null;
+        }
+        // Only written when it changes, so that the hits on a hot session do not keep invalidating its cache line
+        if (!session.referenced) {
+            session.referenced = true;
+        }
+        hitCount.increment();
+        return session;
+    }
+
+    /**
+     * @return the invalidation epoch to be passed to {@link #put(UserAuthEntity, long)} after reading from the DB.
+     */
+    public long currentEpoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Caches the session unless an invalidation happened since the given epoch was read or the token has expired.
+     *
+     * @param userAuthEntity session read from the DB.
+     * @param readEpoch      value of {@link #currentEpoch()} taken before the DB read.
+     */
+    public void put(final UserAuthEntity userAuthEntity, final long readEpoch) {
+        final long now = System.currentTimeMillis();
+        final long cachedUntil = Math.min(now + TimeUnit.SECONDS.toMillis(ttlSeconds),
+                userAuthEntity.getExpiresAt().toInstant().toEpochMilli());
+        if (cachedUntil <= now) {
+            return;
+        }
+        final UserSession session = new UserSession(userAuthEntity, cachedUntil);
+        // Indexed first, so that an invalidation of the user that misses the epoch check below finds the token
+        tokensByUser.compute(session.userId, (userId, tokens) -> {
+            final Set<String> userTokens = tokens == null ? new HashSet<>() : tokens;
+            userTokens.add(session.accessToken);
+            return userTokens;
+        });
+        // Atomic with the removal of the same token, which bumps the epoch first
+        final UserSession cached = sessions.compute(session.accessToken,
+                (accessToken, current) -> epoch.get() == readEpoch ? session : current);
+        if (cached != session) {
+            if (cached == null) {
+                unindex(session);
+            }
+            return;
+        }
+        if (sessions.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the session for the access token now and once more when the current transaction commits.
+     *
+     * @param accessToken access token whose session has changed.
+     */
+    public void invalidate(final String accessToken) {
+        remove(accessToken);
+        TransactionCallbacks.afterCommit(() -> remove(accessToken));
+    }
+
+    /**
+     * Removes all the sessions of a user now and once more when the current transaction commits.
+     *
+     * @param userId id of the user whose sessions are no longer valid.
+     */
+    public void invalidateUser(final Integer userId) {
+        removeUser(userId);
+        TransactionCallbacks.afterCommit(() -> removeUser(userId));
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    public int getSize() {
+        return sessions.size();
+    }
+
+    private void remove(final String accessToken) {
+        epoch.incrementAndGet();
+        final UserSession session = sessions.remove(accessToken);
+        if (session != null) {
+            unindex(session);
+        }
+    }
+
+    private void removeUser(final Integer userId) {
+        epoch.incrementAndGet();
+        final Set<String> tokens = tokensByUser.remove(userId);
+        if (tokens != null) {
+            tokens.forEach(sessions::remove);
+        }
+    }
+
+    private boolean removeSession(final UserSession session) {
+        if (sessions.remove(session.accessToken, session)) {
+            unindex(session);
+            return true;
+        }
+        return false;
+    }
+
+    private void unindex(final UserSession session) {
+        tokensByUser.computeIfPresent(session.userId, (userId, tokens) -> {
+            tokens.remove(session.accessToken);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    /**
+     * Sweeps the hand over the sessions until the cache is back to its maximum size, clearing the reference bits it
+     * passes and evicting the expired sessions and those whose bit is already clear. Two turns of the hand at most,
+     * since the first one clears every bit.
+     */
+    private void evict() {
+        synchronized (evictionLock) {
+            final long now = System.currentTimeMillis();
+            int visited = 0;
+            while (sessions.size() > maxSize && visited <= 2 * maxSize + 2) {
+                if (hand == null || !hand.hasNext()) {
+                    hand = sessions.values().iterator();
+                    if (!hand.hasNext()) {
+                        return;
+                    }
+                }
+                final UserSession session = hand.next();
+                visited++;
+                if (session.referenced && session.cachedUntil >= now) {
+                    session.referenced = false;
+                } else if (removeSession(session)) {
+                    evictionCount.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable snapshot of a USER_AUTH row together with the id, uuid and role of its user, which is all the callers
+     * of {@link UserAuthDao#getUserAuthByToken(String)} need of the user, and the reference bit of the clock.
+     */
+    public static final class UserSession {
+        private final Integer id;
+        private final String uuid;
+        private final String accessToken;
+        private final Integer userId;
+        private final String userUuid;
+        private final String role;
+        private final ZonedDateTime loginAt;
+        private final ZonedDateTime expiresAt;
+        private final ZonedDateTime logoutAt;
+        private final long cachedUntil;
+        // Set when the session is read, cleared by the hand of the clock; new sessions start as read
+        private volatile boolean referenced = true;
+
+        private UserSession(final UserAuthEntity userAuthEntity, final long cachedUntil) {
+            this.id = userAuthEntity.getId();
+            this.uuid = userAuthEntity.getUuid();
+            this.accessToken = userAuthEntity.getAccessToken();
+            this.userId = userAuthEntity.getUserEntity().getId();
+            this.userUuid = userAuthEntity.getUserEntity().getUuid();
+            this.role = userAuthEntity.getUserEntity().getRole();
+            this.loginAt = userAuthEntity.getLoginAt();
+            this.expiresAt = userAuthEntity.getExpiresAt();
+            this.logoutAt = userAuthEntity.getLogoutAt();
+            this.cachedUntil = cachedUntil;
+        }
+
+        public Integer getUserId() {
+            return userId;
+        }
+
+        public String getRole() {
+            return role;
+        }
+
+        public ZonedDateTime getExpiresAt() {
+            return expiresAt;
+        }
+
+        public ZonedDateTime getLogoutAt() {
+            return logoutAt;
+        }
+
+        /**
+         * Rebuilds a detached UserAuthEntity from the snapshot. Its user is a detached UserEntity with only the id,
+         * uuid and role set rather than a lazy proxy, so reading it never runs a query or fails outside a session;
+         * the other details of the user have to be read with {@link UserDao}.
+         *
+         * @return detached UserAuthEntity carrying all the columns of the cached row.
+         */
+        public UserAuthEntity toEntity() {
+            final UserEntity user = new UserEntity();
+            user.setId(userId);
+            user.setUuid(userUuid);
+            user.setRole(role);
+            final UserAuthEntity userAuthEntity = new UserAuthEntity();
+            userAuthEntity.setId(id);
+            userAuthEntity.setUuid(uuid);
+            userAuthEntity.setAccessToken(accessToken);
+            userAuthEntity.setUserEntity(user);
+            userAuthEntity.setLoginAt(loginAt);
+            userAuthEntity.setExpiresAt(expiresAt);
+            userAuthEntity.setLogoutAt(logoutAt);
+            return userAuthEntity;
+        }
+    }
+}
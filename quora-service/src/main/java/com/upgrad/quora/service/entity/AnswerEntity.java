@@ -14,15 +14,19 @@ import java.time.ZonedDateTime;
     @Table(name = "answer")
     @NamedQueries(
             {
-                    @NamedQuery(name = "answerByUUID", query = "select ans from AnswerEntity ans where ans.uuid = :uuid"),
-                    @NamedQuery(name = "answerByQuestionId", query = "select ans from AnswerEntity ans where ans.question.id = :questionId")
+                    @NamedQuery(name = "answerByUUID", query = "select ans from AnswerEntity ans join fetch ans.user where ans.uuid = :uuid"),
+                    @NamedQuery(name = "answerByQuestionId", query = "select new com.upgrad.quora.service.model.AnswerSummary(ans.uuid, ans.ans, q.content) from AnswerEntity ans join ans.question q where q.id = :questionId"),
+                    @NamedQuery(name = "allAnswerContents", query = "select new com.upgrad.quora.service.model.AnswerContent(ans.id, ans.question.id, ans.ans) from AnswerEntity ans"),
+                    @NamedQuery(name = "answerIdsByUser", query = "select ans.id from AnswerEntity ans where ans.user.id = :userId")
             }
     )
     public class AnswerEntity implements Serializable {
 
+        // Sequence ids (rather than IDENTITY) let Hibernate batch the inserts; allocationSize matches the INCREMENT BY of answer_id_seq
         @Id
         @Column(name = "id")
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answer_id_generator")
+        @SequenceGenerator(name = "answer_id_generator", sequenceName = "answer_id_seq", allocationSize = 50)
         private Integer id;
 
         @Column(name = "uuid")
@@ -39,13 +43,13 @@ import java.time.ZonedDateTime;
         @NotNull
         private ZonedDateTime date;
 
-        @ManyToOne
+        @ManyToOne(fetch = FetchType.LAZY)
         @OnDelete(action = OnDeleteAction.CASCADE)
         @JoinColumn(name = "user_id")
         @NotNull
         private UserEntity user;
 
-        @ManyToOne
+        @ManyToOne(fetch = FetchType.LAZY)
         @OnDelete(action = OnDeleteAction.CASCADE)
         @JoinColumn(name = "question_id")
         @NotNull
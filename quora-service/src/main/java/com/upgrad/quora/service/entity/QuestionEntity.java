@@ -1,5 +1,9 @@
 package com.upgrad.quora.service.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -11,16 +15,49 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(name = "question")
 @NamedQueries({
-        @NamedQuery(name = "getAllQuestions", query = "select q from QuestionEntity q"),
-        @NamedQuery(name = "getQuestionById", query = "select q from QuestionEntity q where q.uuid=:uuid")
+        @NamedQuery(name = "getAllQuestions", query = "select new com.upgrad.quora.service.model.QuestionSummary(q.id, q.uuid, q.content, q.date, q.answerCount, q.lastAnswerAt) from QuestionEntity q"),
+        @NamedQuery(name = "getQuestionByUser", query = "select new com.upgrad.quora.service.model.QuestionSummary(q.id, q.uuid, q.content, q.date, q.answerCount, q.lastAnswerAt) from QuestionEntity q where q.userEntity = :user"),
+        @NamedQuery(name = "getQuestionsFirstPage", query = "select new com.upgrad.quora.service.model.QuestionSummary(q.id, q.uuid, q.content, q.date, q.answerCount, q.lastAnswerAt) from QuestionEntity q order by q.date desc, q.id desc"),
+        @NamedQuery(name = "getQuestionsAfter", query = "select new com.upgrad.quora.service.model.QuestionSummary(q.id, q.uuid, q.content, q.date, q.answerCount, q.lastAnswerAt) from QuestionEntity q where q.date < :date or (q.date = :date and q.id < :id) order by q.date desc, q.id desc"),
+        @NamedQuery(name = "questionIdsByUser", query = "select q.id from QuestionEntity q where q.userEntity.id = :userId")
 })
+// Questions matching the query in their content or in one of their answers, best match first. An answer match
+// counts half as much as a question match. ts_headline is only computed for the rows of the page, and marks the matches
+// with the control characters of SearchHighlights (stripped from the text first) so that the DAO can escape the text.
+@NamedNativeQuery(name = "searchQuestions", resultSetMapping = "questionSearchHit", query =
+        "with search as (select websearch_to_tsquery('english', :query) as tsq), "
+                + "matches as ("
+                + "select q.id as question_id, ts_rank(q.content_tsv, search.tsq) as rank from question q, search where q.content_tsv @@ search.tsq "
+                + "union all "
+                + "select a.question_id, ts_rank(a.ans_tsv, search.tsq) * 0.5 from answer a, search where a.ans_tsv @@ search.tsq), "
+                + "page as (select question_id, max(rank) as rank from matches group by question_id order by rank desc, question_id desc limit :limit offset :offset) "
+                + "select q.uuid as uuid, q.content as content, page.rank as rank, "
+                + "ts_headline('english', translate(case when q.content_tsv @@ search.tsq then q.content else coalesce("
+                + "(select a.ans from answer a where a.question_id = q.id and a.ans_tsv @@ search.tsq order by ts_rank(a.ans_tsv, search.tsq) desc limit 1), q.content) end, "
+                + "chr(2) || chr(3), ''), "
+                + "search.tsq, 'StartSel=' || chr(2) || ', StopSel=' || chr(3) || ', MaxWords=35, MinWords=15') as snippet "
+                + "from page join question q on q.id = page.question_id cross join search "
+                + "order by page.rank desc, q.id desc")
+@SqlResultSetMapping(name = "questionSearchHit", classes = @ConstructorResult(
+        targetClass = com.upgrad.quora.service.model.QuestionSearchHit.class,
+        columns = {
+                @ColumnResult(name = "uuid", type = String.class),
+                @ColumnResult(name = "content", type = String.class),
+                @ColumnResult(name = "rank", type = Float.class),
+                @ColumnResult(name = "snippet", type = String.class)
+        }))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "question")
+@NaturalIdCache(region = "question-uuid")
 public class QuestionEntity {
 
+    // Sequence ids (rather than IDENTITY) let Hibernate batch the inserts; allocationSize matches the INCREMENT BY of question_id_seq
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_id_generator")
+    @SequenceGenerator(name = "question_id_generator", sequenceName = "question_id_seq", allocationSize = 50)
     private Integer id;
 
+    @NaturalId
     @Column(name = "uuid")
     @Size(max = 200)
     @NotNull
@@ -35,11 +72,19 @@ public class QuestionEntity {
     @NotNull
     private ZonedDateTime date;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "user_id")
     private UserEntity userEntity;
 
+    // Maintained by the triggers of ANSWER (see V7), which bypass the second-level cache; read them through
+    // QuestionSummary rather than from a (possibly cached) entity
+    @Column(name = "answer_count", insertable = false, updatable = false)
+    private Integer answerCount;
+
+    @Column(name = "last_answer_at", insertable = false, updatable = false)
+    private ZonedDateTime lastAnswerAt;
+
     public Integer getId() {
         return id;
     }
@@ -79,4 +124,12 @@ public class QuestionEntity {
     public void setUserEntity(UserEntity userEntity) {
         this.userEntity = userEntity;
     }
+
+    public Integer getAnswerCount() {
+        return answerCount;
+    }
+
+    public ZonedDateTime getLastAnswerAt() {
+        return lastAnswerAt;
+    }
 }
\ No newline at end of file
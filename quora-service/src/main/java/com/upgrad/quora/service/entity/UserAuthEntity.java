@@ -12,7 +12,8 @@ import java.time.ZonedDateTime;
 @Entity
 @Table(name = "user_auth")
 @NamedQueries({
-        @NamedQuery(name = "userAuthByAccessToken", query = "select ut from UserAuthEntity ut where ut.accessToken = :accessToken ")
+        @NamedQuery(name = "userAuthByAccessToken", query = "select ut from UserAuthEntity ut join fetch ut.userEntity where ut.accessToken = :accessToken "),
+        @NamedQuery(name = "signedOutAccessTokens", query = "select ut.accessToken from UserAuthEntity ut where ut.logoutAt is not null and ut.expiresAt > :now")
 })
 public class UserAuthEntity implements Serializable {
 
@@ -27,7 +28,7 @@ public class UserAuthEntity implements Serializable {
     @Size(max = 200)
     private String uuid;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @OnDelete(action = OnDeleteAction.CASCADE)
     @JoinColumn(name = "USER_ID")
     @NotNull
@@ -0,0 +1,94 @@
+package com.upgrad.quora.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the DAO calls and the transactions of the service layer.
+ * <p>
+ * quora.dao.query is recorded for every public DAO method, each of which runs one named query or entity operation,
+ * tagged with the DAO and method (e.g. UserAuthDao.getUserAuthByToken for userAuthByAccessToken).
+ * quora.transaction is recorded for the outermost @Transactional service method only, from before the transaction
+ * begins until after it commits or rolls back, and tagged read-only or not. Both are tagged with the service or DAO
+ * method and with the simple name of the exception thrown, if any.
+ * Transactions run through a TransactionTemplate are not timed.
+ */
+@Aspect
+@Component
+// Outside the transaction interceptor, but after the ExposeInvocationInterceptor (HIGHEST_PRECEDENCE + 1), which the
+// binding of the @Transactional argument needs
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class DataAccessMetrics {
+
+    public static final String QUERY_TIMER = "quora.dao.query";
+
+    public static final String TRANSACTION_TIMER = "quora.transaction";
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Around("execution(public * com.upgrad.quora.service.dao.*Dao.*(..))")
+    public Object timeQuery(final ProceedingJoinPoint joinPoint) throws Throwable {
+        // Lets the statements of the request be traced back to the DAO method that issued them
+        final RequestStatements statements = RequestStatements.current();
+        if (statements == null) {
+            return time(joinPoint, QUERY_TIMER, Tags.empty());
+        }
+        final String previous = statements.enterDao(methodName(joinPoint));
+        try {
+            return time(joinPoint, QUERY_TIMER, Tags.empty());
+        } finally {
+            statements.exitDao(previous);
+        }
+    }
+
+    @Around("execution(public * com.upgrad.quora.service..*(..)) && @annotation(transactional)")
+    public Object timeTransaction(final ProceedingJoinPoint joinPoint, final Transactional transactional) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // Joins the transaction of its caller, which is already timed
+            return joinPoint.proceed();
+        }
+        return time(joinPoint, TRANSACTION_TIMER, Tags.of("read-only", String.valueOf(transactional.readOnly())));
+    }
+
+    private Object time(final ProceedingJoinPoint joinPoint, final String timerName, final Tags tags) throws Throwable {
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (registry == null) {
+            return joinPoint.proceed();
+        }
+        final long start = System.nanoTime();
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            Timer.builder(timerName)
+                    .tags(tags)
+                    .tag("method", methodName(joinPoint))
+                    .tag("exception", exception)
+                    .register(registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String methodName(final ProceedingJoinPoint joinPoint) {
+        final MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        return signature.getDeclaringType().getSimpleName() + "." + signature.getName();
+    }
+}
@@ -0,0 +1,184 @@
+package com.upgrad.quora.service.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SQL statements issued while serving one request, as reported by {@link StatementMonitor}.
+ * <p>
+ * A request begins one of these on its thread; work handed to another thread for the same request attaches it there.
+ * Statements are grouped by their SQL, where bind parameters are ? placeholders, so that the same query run once per
+ * row (N+1) shows up as one shape issued many times. A statement that runs longer than the slow statement threshold is
+ * logged right away with the DAO method that issued it. Statements issued outside a request are not collected.
+ */
+public final class RequestStatements {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestStatements.class);
+
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    private final long slowStatementNanos;
+
+    private final long startNanos = System.nanoTime();
+
+    // Guarded by this; the work of a request runs on one thread at a time but may move between threads
+    private final Map<String, Shape> shapes = new LinkedHashMap<>();
+
+    private int statementCount;
+
+    private long statementNanos;
+
+    private String lastSql;
+
+    private String daoMethod;
+
+    private RequestStatements(final long slowStatementMillis) {
+        this.slowStatementNanos = TimeUnit.MILLISECONDS.toNanos(slowStatementMillis);
+    }
+
+    /**
+     * Starts collecting the statements of a request on the current thread.
+     *
+     * @param slowStatementMillis statements running longer than this are logged.
+     * @return the statements of the request, to be passed to {@link #restore} once it is served.
+     */
+    public static RequestStatements begin(final long slowStatementMillis) {
+        final RequestStatements statements = new RequestStatements(slowStatementMillis);
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    /**
+     * @return the statements of the request served by the current thread, null outside a request.
+     */
+    public static RequestStatements current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Collects the statements of the current thread into those of a request served by another thread.
+     *
+     * @param statements statements of the request, may be null.
+     * @return what the current thread collected into before, to be passed to {@link #restore}.
+     */
+    public static RequestStatements attach(final RequestStatements statements) {
+        final RequestStatements previous = CURRENT.get();
+        CURRENT.set(statements);
+        return previous;
+    }
+
+    /**
+     * @param previous what the current thread collected into before {@link #begin} or {@link #attach}.
+     */
+    public static void restore(final RequestStatements previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * @param method DAO method now running, e.g. QuestionDao.getAllQuestions.
+     * @return the DAO method that was running before, to be passed back once this one returns.
+     */
+    synchronized String enterDao(final String method) {
+        final String previous = daoMethod;
+        daoMethod = method;
+        return previous;
+    }
+
+    synchronized void exitDao(final String previous) {
+        daoMethod = previous;
+    }
+
+    synchronized void prepared(final String sql) {
+        statementCount++;
+        lastSql = sql;
+        final Shape shape = shapes.computeIfAbsent(sql, key -> new Shape(key, daoMethod));
+        shape.count++;
+    }
+
+    void executed(final long nanos) {
+        final String sql;
+        final String method;
+        synchronized (this) {
+            statementNanos += nanos;
+            sql = lastSql;
+            method = daoMethod;
+        }
+        if (nanos > slowStatementNanos) {
+            LOGGER.warn("Slow statement ({} ms) in {}: {}", TimeUnit.NANOSECONDS.toMillis(nanos), method, sql);
+        }
+    }
+
+    public synchronized int getStatementCount() {
+        return statementCount;
+    }
+
+    public synchronized long getStatementMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(statementNanos);
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return the statement shapes issued, most repeated first.
+     */
+    public synchronized List<Shape> getShapes() {
+        final List<Shape> sorted = new ArrayList<>(shapes.size());
+        for (Shape shape : shapes.values()) {
+            sorted.add(new Shape(shape.sql, shape.daoMethod, shape.count));
+        }
+        sorted.sort((a, b) -> Integer.compare(b.count, a.count));
+        return sorted;
+    }
+
+    /**
+     * A SQL statement with ? in place of its bind parameters, the DAO method that first issued it and how many times
+     * it was issued.
+     */
+    public static final class Shape {
+        private final String sql;
+        private final String daoMethod;
+        private int count;
+
+        private Shape(final String sql, final String daoMethod) {
+            this(sql, daoMethod, 0);
+        }
+
+        private Shape(final String sql, final String daoMethod, final int count) {
+            this.sql = sql;
+            this.daoMethod = daoMethod;
+            this.count = count;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return the DAO method, null if issued outside one, e.g. by a flush at commit or a lazy load.
+         */
+        public String getDaoMethod() {
+            return daoMethod;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return count + "x " + (daoMethod == null ? "" : daoMethod + " ") + sql;
+        }
+    }
+}
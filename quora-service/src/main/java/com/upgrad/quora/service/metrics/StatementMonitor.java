@@ -0,0 +1,51 @@
+package com.upgrad.quora.service.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Reports the SQL statements of Hibernate to the {@link RequestStatements} of the current request. Hibernate creates
+ * it from the configuration, both as the statement inspector of the session factory (hibernate.session_factory.
+ * statement_inspector), which sees every statement as it is prepared, and as an event listener of every session
+ * (hibernate.session.events.auto), which times their execution.
+ */
+public class StatementMonitor extends BaseSessionEventListener implements StatementInspector {
+
+    private long executeStart;
+
+    @Override
+    public String inspect(final String sql) {
+        final RequestStatements statements = RequestStatements.current();
+        if (statements != null) {
+            statements.prepared(sql);
+        }
+        return sql;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        executed();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        executed();
+    }
+
+    private void executed() {
+        final RequestStatements statements = RequestStatements.current();
+        if (statements != null) {
+            statements.executed(System.nanoTime() - executeStart);
+        }
+    }
+}
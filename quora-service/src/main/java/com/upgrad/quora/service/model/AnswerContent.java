@@ -0,0 +1,32 @@
+package com.upgrad.quora.service.model;
+
+/**
+ * Read-only projection of an answer with the id of its question, as read to build the in-memory search index.
+ * Instances are created by JPQL constructor expressions so that neither the answer nor its question is loaded as an entity.
+ */
+public class AnswerContent {
+
+    private final Integer id;
+
+    private final Integer questionId;
+
+    private final String ans;
+
+    public AnswerContent(final Integer id, final Integer questionId, final String ans) {
+        this.id = id;
+        this.questionId = questionId;
+        this.ans = ans;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Integer getQuestionId() {
+        return questionId;
+    }
+
+    public String getAns() {
+        return ans;
+    }
+}
@@ -0,0 +1,32 @@
+package com.upgrad.quora.service.model;
+
+/**
+ * Read-only projection of an answer together with the content of its question, as listed for a question.
+ * Instances are created by JPQL constructor expressions so that neither the answer, its question nor its user is loaded as an entity.
+ */
+public class AnswerSummary {
+
+    private final String uuid;
+
+    private final String ans;
+
+    private final String questionContent;
+
+    public AnswerSummary(final String uuid, final String ans, final String questionContent) {
+        this.uuid = uuid;
+        this.ans = ans;
+        this.questionContent = questionContent;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAns() {
+        return ans;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+}
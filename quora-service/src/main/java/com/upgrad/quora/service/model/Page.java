@@ -0,0 +1,31 @@
+package com.upgrad.quora.service.model;
+
+import java.util.List;
+
+/**
+ * A page of results together with the cursor to fetch the following page.
+ *
+ * @param <T> type of the items in the page.
+ */
+public class Page<T> {
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    public Page(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return cursor of the next page or null if this is the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,52 @@
+package com.upgrad.quora.service.model;
+
+/**
+ * One record read from a question import, either the content of the question or the reason it could not be read.
+ */
+public class QuestionImportRecord {
+
+    private final int record;
+
+    private final String content;
+
+    private final String error;
+
+    private QuestionImportRecord(final int record, final String content, final String error) {
+        this.record = record;
+        this.content = content;
+        this.error = error;
+    }
+
+    /**
+     * @param record position of the record in the import, starting at 1.
+     * @param content content of the question, may be null if the record has none.
+     * @return a record that was read.
+     */
+    public static QuestionImportRecord of(final int record, final String content) {
+        return new QuestionImportRecord(record, content, null);
+    }
+
+    /**
+     * @param record position of the record in the import, starting at 1.
+     * @param error reason the record could not be read.
+     * @return a record that could not be read.
+     */
+    public static QuestionImportRecord failed(final int record, final String error) {
+        return new QuestionImportRecord(record, null, error);
+    }
+
+    public int getRecord() {
+        return record;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return reason the record could not be read or null if it was read.
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,70 @@
+package com.upgrad.quora.service.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a question import: how many questions were imported and which records were not.
+ * Only the first maxReportedErrors failures are kept so that a bad import cannot grow the report without bound.
+ */
+public class QuestionImportReport {
+
+    private final int maxReportedErrors;
+
+    private final List<Failure> errors = new ArrayList<>();
+
+    private int imported;
+
+    private int failed;
+
+    public QuestionImportReport(final int maxReportedErrors) {
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public void addImported(final int count) {
+        imported += count;
+    }
+
+    public void addFailure(final int record, final String message) {
+        failed++;
+        if (errors.size() < maxReportedErrors) {
+            errors.add(new Failure(record, message));
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<Failure> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * A record that was not imported.
+     */
+    public static class Failure {
+
+        private final int record;
+
+        private final String message;
+
+        public Failure(final int record, final String message) {
+            this.record = record;
+            this.message = message;
+        }
+
+        public int getRecord() {
+            return record;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
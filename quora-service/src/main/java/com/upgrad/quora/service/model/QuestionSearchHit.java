@@ -0,0 +1,43 @@
+package com.upgrad.quora.service.model;
+
+/**
+ * Read-only projection of a question matched by a full-text search, with its rank and a highlighted snippet.
+ * Instances are created by the searchQuestions native query so that the question is not loaded as an entity.
+ */
+public class QuestionSearchHit {
+
+    private final String uuid;
+
+    private final String content;
+
+    private final Float rank;
+
+    private final String snippet;
+
+    public QuestionSearchHit(final String uuid, final String content, final Float rank, final String snippet) {
+        this.uuid = uuid;
+        this.content = content;
+        this.rank = rank;
+        this.snippet = snippet;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Float getRank() {
+        return rank;
+    }
+
+    /**
+     * @return HTML-escaped fragment of the question, or of its best matching answer, with the matched words in
+     *     &lt;b&gt;&lt;/b&gt;.
+     */
+    public String getSnippet() {
+        return snippet;
+    }
+}
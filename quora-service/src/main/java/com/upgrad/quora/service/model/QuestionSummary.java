@@ -0,0 +1,59 @@
+package com.upgrad.quora.service.model;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only projection of a question with just the columns the listing endpoints need.
+ * Instances are created by JPQL constructor expressions so that neither the question nor its user is loaded as an entity.
+ */
+public class QuestionSummary {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final ZonedDateTime date;
+
+    private final int answerCount;
+
+    private final ZonedDateTime lastAnswerAt;
+
+    public QuestionSummary(final Integer id, final String uuid, final String content, final ZonedDateTime date,
+                           final Integer answerCount, final ZonedDateTime lastAnswerAt) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.date = date;
+        this.answerCount = answerCount == null ? 0 : answerCount;
+        this.lastAnswerAt = lastAnswerAt;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public int getAnswerCount() {
+        return answerCount;
+    }
+
+    /**
+     * @return date of the latest answer or null if the question has no answers.
+     */
+    public ZonedDateTime getLastAnswerAt() {
+        return lastAnswerAt;
+    }
+}
\ No newline at end of file
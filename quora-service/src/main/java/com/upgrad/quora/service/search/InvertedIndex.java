@@ -0,0 +1,259 @@
+package com.upgrad.quora.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Inverted index of one text field with BM25 scoring. Every term maps to a posting list of document ids and term
+ * frequencies held in primitive int arrays sorted by document id, so that the lists of several terms can be walked
+ * side by side. Terms are kept sorted for prefix lookups. Not thread safe, {@link QuestionSearchEngine} guards it.
+ * <p>
+ * A document is either indexed as a whole with {@link #put} and {@link #remove}, or built up and taken apart with
+ * {@link #add} and {@link #subtract}, which only touch the postings of the given words. The terms of the latter are
+ * not recorded, so they have to be removed by subtracting everything that was added.
+ */
+final class InvertedIndex {
+
+    private static final float K1 = 1.2f;
+
+    private static final float B = 0.75f;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    // Distinct terms of every document, to find its postings again when it is removed
+    private final Map<Integer, String[]> documentTerms = new HashMap<>();
+
+    private final Map<Integer, Integer> documentLengths = new HashMap<>();
+
+    private long totalLength;
+
+    private long postingCount;
+
+    /**
+     * Indexes a document, replacing what was indexed for the same id before.
+     *
+     * @param document id of the document.
+     * @param tokens words of the document.
+     */
+    void put(final int document, final List<String> tokens) {
+        remove(document);
+        if (tokens.isEmpty()) {
+            return;
+        }
+        final Map<String, Integer> frequencies = frequencies(tokens);
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            terms.computeIfAbsent(frequency.getKey(), term -> new Postings()).put(document, frequency.getValue());
+        }
+        documentTerms.put(document, frequencies.keySet().toArray(new String[0]));
+        documentLengths.put(document, tokens.size());
+        totalLength += tokens.size();
+        postingCount += frequencies.size();
+    }
+
+    /**
+     * @param document id of the document to be removed, nothing happens if it is not indexed.
+     */
+    void remove(final int document) {
+        final String[] distinctTerms = documentTerms.remove(document);
+        if (distinctTerms == null) {
+            return;
+        }
+        for (String term : distinctTerms) {
+            final Postings postings = terms.get(term);
+            postings.remove(document);
+            if (postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+        totalLength -= documentLengths.remove(document);
+        postingCount -= distinctTerms.length;
+    }
+
+    /**
+     * Adds words to a document, indexing it if it is not yet.
+     *
+     * @param document id of the document.
+     * @param tokens words added to the document.
+     */
+    void add(final int document, final List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> frequency : frequencies(tokens).entrySet()) {
+            if (terms.computeIfAbsent(frequency.getKey(), term -> new Postings())
+                    .add(document, frequency.getValue())) {
+                postingCount++;
+            }
+        }
+        documentLengths.merge(document, tokens.size(), Integer::sum);
+        totalLength += tokens.size();
+    }
+
+    /**
+     * Removes words previously added to a document, the document goes once none of its words are left.
+     *
+     * @param document id of the document.
+     * @param tokens words removed from the document, they must have been added before.
+     */
+    void subtract(final int document, final List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return;
+        }
+        for (Map.Entry<String, Integer> frequency : frequencies(tokens).entrySet()) {
+            final Postings postings = terms.get(frequency.getKey());
+            if (postings != null && postings.subtract(document, frequency.getValue())) {
+                postingCount--;
+                if (postings.size == 0) {
+                    terms.remove(frequency.getKey());
+                }
+            }
+        }
+        final int length = documentLengths.get(document) - tokens.size();
+        if (length > 0) {
+            documentLengths.put(document, length);
+        } else {
+            documentLengths.remove(document);
+        }
+        totalLength -= tokens.size();
+    }
+
+    /**
+     * @param term exact term, or the prefix of the terms if prefix is set.
+     * @param prefix whether all the terms starting with term are wanted.
+     * @param maxExpansions maximum number of terms returned for a prefix, in alphabetical order.
+     * @return posting lists of the matching terms.
+     */
+    List<Postings> lookup(final String term, final boolean prefix, final int maxExpansions) {
+        final List<Postings> matches = new ArrayList<>();
+        if (!prefix) {
+            final Postings postings = terms.get(term);
+            if (postings != null) {
+                matches.add(postings);
+            }
+            return matches;
+        }
+        final NavigableMap<String, Postings> expansions = terms.subMap(term, true, term + Character.MAX_VALUE, false);
+        for (Postings postings : expansions.values()) {
+            if (matches.size() == maxExpansions) {
+                break;
+            }
+            matches.add(postings);
+        }
+        return matches;
+    }
+
+    /**
+     * @param postings posting list of a term of this index.
+     * @return inverse document frequency of the term.
+     */
+    float idf(final Postings postings) {
+        final int documents = documentLengths.size();
+        return (float) Math.log(1 + (documents - postings.size + 0.5) / (postings.size + 0.5));
+    }
+
+    /**
+     * @param postings posting list of a term of this index.
+     * @param position position in the posting list.
+     * @return BM25 weight of the term in the document at the given position, without the idf factor.
+     */
+    float termWeight(final Postings postings, final int position) {
+        final int frequency = postings.frequencies[position];
+        final int length = documentLengths.get(postings.documents[position]);
+        final float averageLength = (float) totalLength / documentLengths.size();
+        return frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * length / averageLength));
+    }
+
+    private static Map<String, Integer> frequencies(final List<String> tokens) {
+        final Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        return frequencies;
+    }
+
+    int documentCount() {
+        return documentLengths.size();
+    }
+
+    int termCount() {
+        return terms.size();
+    }
+
+    long postingCount() {
+        return postingCount;
+    }
+
+    /**
+     * Documents containing a term with the number of times the term occurs in each of them, sorted by document id.
+     */
+    static final class Postings {
+
+        int[] documents = new int[4];
+
+        int[] frequencies = new int[4];
+
+        int size;
+
+        private void put(final int document, final int frequency) {
+            int position = Arrays.binarySearch(documents, 0, size, document);
+            if (position >= 0) {
+                frequencies[position] = frequency;
+                return;
+            }
+            position = -position - 1;
+            if (size == documents.length) {
+                documents = Arrays.copyOf(documents, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            System.arraycopy(documents, position, documents, position + 1, size - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            documents[position] = document;
+            frequencies[position] = frequency;
+            size++;
+        }
+
+        /**
+         * @return whether the document was not in the list yet.
+         */
+        private boolean add(final int document, final int frequency) {
+            final int position = Arrays.binarySearch(documents, 0, size, document);
+            if (position >= 0) {
+                frequencies[position] += frequency;
+                return false;
+            }
+            put(document, frequency);
+            return true;
+        }
+
+        /**
+         * @return whether the document left the list.
+         */
+        private boolean subtract(final int document, final int frequency) {
+            final int position = Arrays.binarySearch(documents, 0, size, document);
+            if (position < 0) {
+                return false;
+            }
+            if (frequencies[position] > frequency) {
+                frequencies[position] -= frequency;
+                return false;
+            }
+            remove(document);
+            return true;
+        }
+
+        private void remove(final int document) {
+            final int position = Arrays.binarySearch(documents, 0, size, document);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(documents, position + 1, documents, position, size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+            size--;
+        }
+    }
+}
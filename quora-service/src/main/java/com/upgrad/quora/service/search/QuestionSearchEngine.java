@@ -0,0 +1,559 @@
+package com.upgrad.quora.service.search;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.model.QuestionSearchHit;
+import com.upgrad.quora.service.util.SearchHighlights;
+import com.upgrad.quora.service.util.TransactionCallbacks;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Embedded full-text search over questions and their answers, for deployments that cannot use the tsvector columns
+ * of the database. Enabled with quora.search.backend=memory.
+ * <p>
+ * Question content and answers are kept in two {@link InvertedIndex}es keyed by question id; all the answers of a
+ * question form one document of the answer index, to which a saved or deleted answer only adds or subtracts its own
+ * words. The index is loaded when the context is refreshed, before the web server takes requests, and then kept
+ * up to date by the create/edit/delete paths of the services once their transaction commits. Results are ranked with
+ * BM25, an answer match counting half as much as a question match like the database search does, and the best
+ * offset + limit questions are picked with a bounded heap.
+ */
+@Component
+public class QuestionSearchEngine {
+
+    public static final String MEMORY_BACKEND = "memory";
+
+    private static final float ANSWER_WEIGHT = 0.5f;
+
+    // A query word followed by * matches every indexed word it is a prefix of
+    private static final Pattern QUERY_TERM = Pattern.compile("([\\p{L}\\p{N}]+)(\\*)?");
+
+    private static final int SNIPPET_WORDS = 35;
+
+    private static final int SNIPPET_WORDS_BEFORE_MATCH = 10;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuestionSearchEngine.class);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectProvider<MeterRegistry> meterRegistry;
+
+    @Value("${quora.search.backend:database}")
+    private String backend;
+
+    @Value("${quora.search.memory.max-prefix-expansions:50}")
+    private int maxPrefixExpansions;
+
+    @Value("${quora.search.memory.load-fetch-size:500}")
+    private int loadFetchSize;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Replaced as a whole by rebuild, changed in place under the write lock otherwise
+    private volatile Index index = new Index();
+
+    // Changes made while rebuild loads a new index, replayed on it before it is swapped in; guarded by the write lock
+    private List<Consumer<Index>> pendingChanges;
+
+    private Timer queryTimer;
+
+    @PostConstruct
+    public void init() {
+        final MeterRegistry registry = meterRegistry.getIfAvailable();
+        if (!isEnabled() || registry == null) {
+            return;
+        }
+        // The gauges read counters the writers publish, so that a scrape never waits for the lock
+        Gauge.builder("quora.search.index.documents", this, engine -> engine.index.questionCount)
+                .description("Questions in the in-memory search index").register(registry);
+        Gauge.builder("quora.search.index.terms", this, engine -> engine.index.termCount)
+                .description("Distinct terms in the in-memory search index").register(registry);
+        Gauge.builder("quora.search.index.postings", this, engine -> engine.index.postingCount)
+                .description("Posting list entries in the in-memory search index").register(registry);
+        queryTimer = Timer.builder("quora.search.query")
+                .description("Latency of in-memory search queries")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * @return whether searches are served by this engine rather than by the database.
+     */
+    public boolean isEnabled() {
+        return MEMORY_BACKEND.equalsIgnoreCase(backend);
+    }
+
+    @EventListener
+    public void onContextRefreshed(final ContextRefreshedEvent event) {
+        // The web server starts its connector after this event, so no search is served from an empty index
+        if (isEnabled() && event.getApplicationContext().getParent() == null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Loads the index from the database and swaps it in once it is complete, so that searches keep being served
+     * from the previous index meanwhile. The changes committed while the load runs are applied to both indexes; all
+     * of them put or remove whole documents, so replaying one the load has already seen leaves the new index as is.
+     */
+    public synchronized void rebuild() {
+        final long start = System.nanoTime();
+        final Index loaded = new Index();
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            load(loaded);
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                pendingChanges = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Consumer<Index> change : pendingChanges) {
+                change.accept(loaded);
+            }
+            loaded.publishCounts();
+            index = loaded;
+        } finally {
+            pendingChanges = null;
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Loaded {} questions into the search index in {} ms", loaded.questionCount,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void load(final Index loaded) {
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.execute(status -> {
+            questionDao.forEachQuestion(loadFetchSize,
+                    question -> loaded.putQuestion(question.getId(), question.getUuid(), question.getContent()));
+            final Map<Integer, List<Integer>> answerIds = new HashMap<>();
+            answerDao.forEachAnswerContent(loadFetchSize, answer -> {
+                loaded.answers.put(answer.getId(), new AnswerDocument(answer.getQuestionId(), answer.getAns()));
+                answerIds.computeIfAbsent(answer.getQuestionId(), questionId -> new ArrayList<>()).add(answer.getId());
+            });
+            for (Map.Entry<Integer, List<Integer>> question : answerIds.entrySet()) {
+                loaded.answerIdsByQuestion.put(question.getKey(), question.getValue());
+                final List<String> tokens = new ArrayList<>();
+                for (Integer answerId : question.getValue()) {
+                    tokens.addAll(Tokenizer.tokenize(loaded.answers.get(answerId).ans));
+                }
+                loaded.answerIndex.add(question.getKey(), tokens);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Indexes a created or edited question once the current transaction commits.
+     *
+     * @param id id of the question.
+     * @param uuid uuid of the question.
+     * @param content content of the question.
+     */
+    public void questionSaved(final Integer id, final String uuid, final String content) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> update(current -> current.putQuestion(id, uuid, content)));
+        }
+    }
+
+    /**
+     * Removes a question and its answers from the index once the current transaction commits.
+     *
+     * @param id id of the question.
+     */
+    public void questionDeleted(final Integer id) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> update(current -> current.removeQuestion(id)));
+        }
+    }
+
+    /**
+     * Indexes a created or edited answer once the current transaction commits.
+     *
+     * @param id id of the answer.
+     * @param questionId id of the question of the answer.
+     * @param ans content of the answer.
+     */
+    public void answerSaved(final Integer id, final Integer questionId, final String ans) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> update(current -> current.putAnswer(id, questionId, ans)));
+        }
+    }
+
+    /**
+     * Removes an answer from the index once the current transaction commits.
+     *
+     * @param id id of the answer.
+     */
+    public void answerDeleted(final Integer id) {
+        if (isEnabled()) {
+            TransactionCallbacks.afterCommit(() -> update(current -> current.removeAnswer(id)));
+        }
+    }
+
+    /**
+     * Removes the questions and answers of a user from the index once the current transaction commits. They are
+     * removed by ON DELETE CASCADE, so this must be called before the user is deleted to find them.
+     *
+     * @param userId id of the user about to be deleted.
+     */
+    public void userDeleted(final Integer userId) {
+        if (isEnabled()) {
+            final List<Integer> questionIds = questionDao.getQuestionIdsByUser(userId);
+            final List<Integer> answerIds = answerDao.getAnswerIdsByUser(userId);
+            TransactionCallbacks.afterCommit(() -> update(current -> {
+                questionIds.forEach(current::removeQuestion);
+                answerIds.forEach(current::removeAnswer);
+            }));
+        }
+    }
+
+    /**
+     * Searches the questions by the words in their content or in their answers, best match first.
+     *
+     * @param query words to search for, a word ending with * matches all the words starting with it.
+     * @param offset number of matching questions to skip.
+     * @param maxResults maximum number of questions to be returned.
+     * @return List of QuestionSearchHit, best match first.
+     */
+    public List<QuestionSearchHit> search(final String query, final int offset, final int maxResults) {
+        final long start = System.nanoTime();
+        lock.readLock().lock();
+        try {
+            return index.search(query, offset, maxResults);
+        } finally {
+            lock.readLock().unlock();
+            if (queryTimer != null) {
+                queryTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private void update(final Consumer<Index> change) {
+        lock.writeLock().lock();
+        try {
+            change.accept(index);
+            index.publishCounts();
+            if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Question and answer indexes together with the text needed to build results and snippets.
+     */
+    private final class Index {
+        private final InvertedIndex questionIndex = new InvertedIndex();
+        private final InvertedIndex answerIndex = new InvertedIndex();
+        private final Map<Integer, QuestionDocument> questions = new HashMap<>();
+        private final Map<Integer, AnswerDocument> answers = new HashMap<>();
+        private final Map<Integer, List<Integer>> answerIdsByQuestion = new HashMap<>();
+
+        private volatile int questionCount;
+        private volatile int termCount;
+        private volatile long postingCount;
+
+        private void putQuestion(final int id, final String uuid, final String content) {
+            questions.put(id, new QuestionDocument(uuid, content));
+            questionIndex.put(id, Tokenizer.tokenize(content));
+        }
+
+        private void removeQuestion(final int id) {
+            questions.remove(id);
+            questionIndex.remove(id);
+            final List<Integer> answerIds = answerIdsByQuestion.get(id);
+            if (answerIds != null) {
+                for (Integer answerId : new ArrayList<>(answerIds)) {
+                    removeAnswer(answerId);
+                }
+            }
+        }
+
+        private void putAnswer(final int id, final int questionId, final String ans) {
+            final AnswerDocument previous = answers.put(id, new AnswerDocument(questionId, ans));
+            if (previous == null) {
+                answerIdsByQuestion.computeIfAbsent(questionId, question -> new ArrayList<>()).add(id);
+            } else {
+                answerIndex.subtract(previous.questionId, Tokenizer.tokenize(previous.ans));
+            }
+            answerIndex.add(questionId, Tokenizer.tokenize(ans));
+        }
+
+        private void removeAnswer(final int id) {
+            final AnswerDocument answer = answers.remove(id);
+            if (answer == null) {
+                return;
+            }
+            final List<Integer> answerIds = answerIdsByQuestion.get(answer.questionId);
+            answerIds.remove(Integer.valueOf(id));
+            if (answerIds.isEmpty()) {
+                answerIdsByQuestion.remove(answer.questionId);
+            }
+            answerIndex.subtract(answer.questionId, Tokenizer.tokenize(answer.ans));
+        }
+
+        private void publishCounts() {
+            questionCount = questionIndex.documentCount();
+            termCount = questionIndex.termCount() + answerIndex.termCount();
+            postingCount = questionIndex.postingCount() + answerIndex.postingCount();
+        }
+
+        private List<QuestionSearchHit> search(final String query, final int offset, final int maxResults) {
+            final List<String> exactTerms = new ArrayList<>();
+            final List<String> prefixes = new ArrayList<>();
+            final List<TermCursor> cursors = new ArrayList<>();
+            final Matcher matcher = QUERY_TERM.matcher(query);
+            while (matcher.find()) {
+                final boolean prefix = matcher.group(2) != null;
+                final List<String> tokens = prefix
+                        ? Collections.singletonList(Tokenizer.normalize(matcher.group(1)))
+                        : Tokenizer.tokenize(matcher.group(1));
+                for (String term : tokens) {
+                    (prefix ? prefixes : exactTerms).add(term);
+                    addCursors(cursors, questionIndex, term, prefix, 1f);
+                    addCursors(cursors, answerIndex, term, prefix, ANSWER_WEIGHT);
+                }
+            }
+
+            // Document-at-a-time: walk all the posting lists in document id order, keeping the best k in a min-heap
+            final int k = offset + maxResults;
+            final PriorityQueue<ScoredQuestion> best = new PriorityQueue<>(Math.max(k, 1));
+            while (k > 0) {
+                int document = Integer.MAX_VALUE;
+                for (TermCursor cursor : cursors) {
+                    if (cursor.hasDocument() && cursor.document() < document) {
+                        document = cursor.document();
+                    }
+                }
+                if (document == Integer.MAX_VALUE) {
+                    break;
+                }
+                float score = 0;
+                for (TermCursor cursor : cursors) {
+                    if (cursor.hasDocument() && cursor.document() == document) {
+                        score += cursor.score();
+                        cursor.advance();
+                    }
+                }
+                if (!questions.containsKey(document)) {
+                    continue;
+                }
+                if (best.size() < k) {
+                    best.add(new ScoredQuestion(document, score));
+                } else if (best.peek().compareTo(new ScoredQuestion(document, score)) < 0) {
+                    best.poll();
+                    best.add(new ScoredQuestion(document, score));
+                }
+            }
+
+            final List<ScoredQuestion> ranked = new ArrayList<>(best);
+            ranked.sort(Collections.reverseOrder());
+            final Predicate<String> matches = word -> exactTerms.contains(word)
+                    || prefixes.stream().anyMatch(word::startsWith);
+            final List<QuestionSearchHit> hits = new ArrayList<>();
+            for (int i = offset; i < ranked.size(); i++) {
+                final ScoredQuestion scored = ranked.get(i);
+                final QuestionDocument question = questions.get(scored.id);
+                hits.add(new QuestionSearchHit(question.uuid, question.content, scored.score,
+                        snippet(scored.id, question, matches)));
+            }
+            return hits;
+        }
+
+        private void addCursors(final List<TermCursor> cursors, final InvertedIndex index, final String term,
+                                final boolean prefix, final float weight) {
+            for (InvertedIndex.Postings postings : index.lookup(term, prefix, maxPrefixExpansions)) {
+                cursors.add(new TermCursor(index, postings, weight * index.idf(postings)));
+            }
+        }
+
+        /**
+         * The question content if it matches, otherwise the answer of the question with the most matching words.
+         */
+        private String snippet(final int questionId, final QuestionDocument question, final Predicate<String> matches) {
+            if (countMatches(question.content, matches) > 0) {
+                return highlight(question.content, matches);
+            }
+            String bestAnswer = question.content;
+            int bestCount = 0;
+            final List<Integer> answerIds = answerIdsByQuestion.getOrDefault(questionId, Collections.emptyList());
+            for (Integer answerId : answerIds) {
+                final String ans = answers.get(answerId).ans;
+                final int count = countMatches(ans, matches);
+                if (count > bestCount) {
+                    bestAnswer = ans;
+                    bestCount = count;
+                }
+            }
+            return highlight(bestAnswer, matches);
+        }
+    }
+
+    private static int countMatches(final String text, final Predicate<String> matches) {
+        int count = 0;
+        final Matcher matcher = Tokenizer.WORD.matcher(text);
+        while (matcher.find()) {
+            if (matches.test(Tokenizer.normalize(matcher.group()))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Cuts a window of SNIPPET_WORDS words starting shortly before the first match and wraps the matching words in
+     * &lt;b&gt;&lt;/b&gt; like the database search does, the rest of the text being HTML-escaped.
+     */
+    private static String highlight(final String text, final Predicate<String> matches) {
+        final List<int[]> words = new ArrayList<>();
+        int firstMatch = -1;
+        final Matcher matcher = Tokenizer.WORD.matcher(text);
+        while (matcher.find()) {
+            final boolean match = matches.test(Tokenizer.normalize(matcher.group()));
+            if (match && firstMatch < 0) {
+                firstMatch = words.size();
+            }
+            words.add(new int[]{matcher.start(), matcher.end(), match ? 1 : 0});
+        }
+        if (words.isEmpty()) {
+            return SearchHighlights.escape(text);
+        }
+        final int first = Math.max(0, Math.min(firstMatch - SNIPPET_WORDS_BEFORE_MATCH, words.size() - SNIPPET_WORDS));
+        final int last = Math.min(words.size(), first + SNIPPET_WORDS) - 1;
+        final StringBuilder snippet = new StringBuilder();
+        int position = words.get(first)[0];
+        for (int i = first; i <= last; i++) {
+            final int[] word = words.get(i);
+            SearchHighlights.escape(text, position, word[0], snippet);
+            if (word[2] == 1) {
+                snippet.append("<b>");
+                SearchHighlights.escape(text, word[0], word[1], snippet);
+                snippet.append("</b>");
+            } else {
+                SearchHighlights.escape(text, word[0], word[1], snippet);
+            }
+            position = word[1];
+        }
+        return snippet.toString();
+    }
+
+    /**
+     * Position in the posting list of one query term, with the weight of the term (idf times field weight).
+     */
+    private static final class TermCursor {
+        private final InvertedIndex index;
+        private final InvertedIndex.Postings postings;
+        private final float weight;
+        private int position;
+
+        private TermCursor(final InvertedIndex index, final InvertedIndex.Postings postings, final float weight) {
+            this.index = index;
+            this.postings = postings;
+            this.weight = weight;
+        }
+
+        private boolean hasDocument() {
+            return position < postings.size;
+        }
+
+        private int document() {
+            return postings.documents[position];
+        }
+
+        private float score() {
+            return weight * index.termWeight(postings, position);
+        }
+
+        private void advance() {
+            position++;
+        }
+    }
+
+    /**
+     * Orders by score and then by id, so that ties are broken towards the newer question like the database search.
+     */
+    private static final class ScoredQuestion implements Comparable<ScoredQuestion> {
+        private final int id;
+        private final float score;
+
+        private ScoredQuestion(final int id, final float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(final ScoredQuestion other) {
+            final int byScore = Float.compare(score, other.score);
+            return byScore != 0 ? byScore : Integer.compare(id, other.id);
+        }
+    }
+
+    private static final class QuestionDocument {
+        private final String uuid;
+        private final String content;
+
+        private QuestionDocument(final String uuid, final String content) {
+            this.uuid = uuid;
+            this.content = content;
+        }
+    }
+
+    private static final class AnswerDocument {
+        private final int questionId;
+        private final String ans;
+
+        private AnswerDocument(final int questionId, final String ans) {
+            this.questionId = questionId;
+            this.ans = ans;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.upgrad.quora.service.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower case words for the in-memory search index. Words are runs of letters and digits;
+ * common English stop words are dropped so that they do not fill the posting lists. There is no stemming,
+ * prefix queries ("word*") cover the other forms of a word.
+ */
+final class Tokenizer {
+
+    static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it", "no",
+            "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these", "they", "this",
+            "to", "was", "will", "with"));
+
+    private Tokenizer() {
+    }
+
+    /**
+     * @param text text to be split, may be null.
+     * @return the indexed words of the text in order, repeated words included.
+     */
+    static List<String> tokenize(final String text) {
+        final List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        final Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) {
+            final String token = normalize(matcher.group());
+            if (!STOP_WORDS.contains(token)) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static String normalize(final String word) {
+        return word.toLowerCase(Locale.ROOT);
+    }
+}
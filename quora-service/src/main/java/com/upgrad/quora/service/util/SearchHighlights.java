@@ -0,0 +1,92 @@
+package com.upgrad.quora.service.util;
+
+/**
+ * Builds the HTML snippets of the search results. The database search marks the matched words with two control
+ * characters rather than with &lt;b&gt;&lt;/b&gt;, so that the text around them can be HTML-escaped before the
+ * markers are turned into tags; user content never reaches the snippet unescaped.
+ */
+public final class SearchHighlights {
+
+    /**
+     * Marks the start of a matched word.
+     */
+    public static final char MATCH_START = '\u0002';
+
+    /**
+     * Marks the end of a matched word.
+     */
+    public static final char MATCH_END = '\u0003';
+
+    private SearchHighlights() {
+    }
+
+    /**
+     * HTML-escapes the marked text and wraps the marked words in &lt;b&gt;&lt;/b&gt;.
+     *
+     * @param marked text with the matched words between MATCH_START and MATCH_END.
+     * @return HTML snippet, or null if marked is null.
+     */
+    public static String toHtml(final String marked) {
+        if (marked == null) {
+            return null;
+        }
+        final StringBuilder html = new StringBuilder(marked.length() + 16);
+        int position = 0;
+        for (int i = 0; i < marked.length(); i++) {
+            final char c = marked.charAt(i);
+            if (c == MATCH_START || c == MATCH_END) {
+                escape(marked, position, i, html);
+                html.append(c == MATCH_START ? "<b>" : "</b>");
+                position = i + 1;
+            }
+        }
+        escape(marked, position, marked.length(), html);
+        return html.toString();
+    }
+
+    /**
+     * @param text plain text.
+     * @return the text HTML-escaped.
+     */
+    public static String escape(final String text) {
+        final StringBuilder html = new StringBuilder(text.length() + 16);
+        escape(text, 0, text.length(), html);
+        return html.toString();
+    }
+
+    /**
+     * Appends a range of plain text HTML-escaped, leaving out any marker character.
+     *
+     * @param text plain text.
+     * @param start start of the range, inclusive.
+     * @param end end of the range, exclusive.
+     * @param html receives the escaped text.
+     */
+    public static void escape(final CharSequence text, final int start, final int end, final StringBuilder html) {
+        for (int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case MATCH_START:
+                case MATCH_END:
+                    break;
+                case '&':
+                    html.append("&amp;");
+                    break;
+                case '<':
+                    html.append("&lt;");
+                    break;
+                case '>':
+                    html.append("&gt;");
+                    break;
+                case '"':
+                    html.append("&quot;");
+                    break;
+                case '\'':
+                    html.append("&#39;");
+                    break;
+                default:
+                    html.append(c);
+            }
+        }
+    }
+}
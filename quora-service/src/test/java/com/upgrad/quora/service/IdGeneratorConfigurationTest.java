@@ -0,0 +1,32 @@
+package com.upgrad.quora.service;
+
+import com.upgrad.quora.service.business.RandomIdGenerator;
+import com.upgrad.quora.service.business.TimeOrderedIdGenerator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IdGeneratorConfigurationTest {
+
+    private final IdGeneratorConfiguration configuration = new IdGeneratorConfiguration();
+
+    //This test case passes when quora.id-generator picks the time-ordered or the random generator.
+    @Test
+    public void picksGenerator() {
+        assertTrue(configuration.idGenerator("time-ordered") instanceof TimeOrderedIdGenerator);
+        assertTrue(configuration.idGenerator("random") instanceof RandomIdGenerator);
+    }
+
+    //This test case passes when any other value of quora.id-generator fails with a message naming the property and the values it takes.
+    @Test
+    public void rejectsUnknownGenerator() {
+        try {
+            configuration.idGenerator("time_ordered");
+            fail("Expected an unknown id generator to be rejected");
+        } catch (IllegalStateException e) {
+            assertEquals("quora.id-generator must be time-ordered or random: time_ordered", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserAuthDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccessTokenServiceTest {
+
+    private final UserAuthDao userAuthDao = mock(UserAuthDao.class);
+
+    private AccessTokenService accessTokenService;
+
+    @After
+    public void tearDown() {
+        if (accessTokenService != null) {
+            accessTokenService.shutdown();
+        }
+    }
+
+    private AccessTokenService accessTokenService(final boolean singleInstance) {
+        when(userAuthDao.getSignedOutAccessTokens(any())).thenReturn(Collections.emptyList());
+        accessTokenService = new AccessTokenService();
+        ReflectionTestUtils.setField(accessTokenService, "userAuthDao", userAuthDao);
+        ReflectionTestUtils.setField(accessTokenService, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(accessTokenService, "secret", "server-secret");
+        ReflectionTestUtils.setField(accessTokenService, "statelessVerification", true);
+        ReflectionTestUtils.setField(accessTokenService, "singleInstance", singleInstance);
+        ReflectionTestUtils.setField(accessTokenService, "revocationPurgeSeconds", 60L);
+        ReflectionTestUtils.setField(accessTokenService, "replicaUrls", "");
+        accessTokenService.init();
+        return accessTokenService;
+    }
+
+    private String signIn(final Integer userId, final String role) {
+        final UserEntity user = new UserEntity();
+        user.setId(userId);
+        user.setUuid("user-" + userId);
+        user.setRole(role);
+        final ZonedDateTime now = ZonedDateTime.now();
+        return accessTokenService.generateAccessToken(user, "user-secret", now, now.plus(AccessTokenService.ACCESS_TOKEN_VALIDITY));
+    }
+
+    //This test case passes when a token signed with the server-wide secret is authorized from its claims without reading USER_AUTH or the user.
+    @Test
+    public void buildsSessionFromClaims() {
+        accessTokenService(true);
+        final String accessToken = signIn(7, "admin");
+
+        final UserAuthEntity session = accessTokenService.getUserAuthByToken(accessToken);
+
+        verify(userAuthDao, never()).getUserAuthByToken(any());
+        assertEquals(Integer.valueOf(7), session.getUserEntity().getId());
+        assertEquals("user-7", session.getUserEntity().getUuid());
+        assertEquals("admin", session.getUserEntity().getRole());
+        assertEquals(accessToken, session.getAccessToken());
+        assertNull(session.getLogoutAt());
+        assertTrue(session.getExpiresAt().isAfter(ZonedDateTime.now()));
+    }
+
+    //This test case passes when the tokens of a signed out session and of a deleted user are looked up in USER_AUTH again.
+    @Test
+    public void looksUpRevokedTokens() {
+        accessTokenService(true);
+        final String signedOut = signIn(7, "nonadmin");
+        final String deleted = signIn(8, "nonadmin");
+        final UserAuthEntity signedOutSession = new UserAuthEntity();
+        when(userAuthDao.getUserAuthByToken(signedOut)).thenReturn(signedOutSession);
+
+        accessTokenService.revoke(signedOut);
+        accessTokenService.revokeUser(8);
+
+        assertSame(signedOutSession, accessTokenService.getUserAuthByToken(signedOut));
+        assertNull(accessTokenService.getUserAuthByToken(deleted));
+        verify(userAuthDao).getUserAuthByToken(deleted);
+    }
+
+    //This test case passes when the purge drops the revocations of expired tokens only.
+    @Test
+    @SuppressWarnings("unchecked")
+    public void purgesExpiredRevocations() {
+        accessTokenService(true);
+        accessTokenService.revoke(signIn(7, "nonadmin"));
+        accessTokenService.revokeUser(8);
+        final Map<String, Long> revokedKeyIds = (Map<String, Long>) ReflectionTestUtils.getField(accessTokenService, "revokedKeyIds");
+        final Map<Integer, Long> revokedUserIds = (Map<Integer, Long>) ReflectionTestUtils.getField(accessTokenService, "revokedUserIds");
+        revokedKeyIds.put("expired", System.currentTimeMillis() - 1);
+        revokedUserIds.put(9, System.currentTimeMillis() - 1);
+
+        accessTokenService.purgeRevocations();
+
+        assertEquals(1, revokedKeyIds.size());
+        assertEquals(Collections.singleton(8), revokedUserIds.keySet());
+    }
+
+    //This test case passes when stateless verification is refused unless it is acknowledged to run on a single instance.
+    @Test
+    public void requiresSingleInstance() {
+        try {
+            accessTokenService(false);
+            fail("Expected stateless verification to require a single instance");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("quora.jwt.single-instance"));
+        }
+    }
+}
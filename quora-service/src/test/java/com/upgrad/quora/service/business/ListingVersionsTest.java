@@ -0,0 +1,88 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.QuestionEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ListingVersionsTest {
+
+    private ListingVersions listingVersions;
+
+    @Before
+    public void setUp() {
+        listingVersions = new ListingVersions();
+        ReflectionTestUtils.setField(listingVersions, "enabled", true);
+        ReflectionTestUtils.setField(listingVersions, "maxListings", 2);
+        ReflectionTestUtils.setField(listingVersions, "replicaUrls", "");
+        listingVersions.init();
+    }
+
+    private static QuestionEntity question(final String uuid, final String ownerUuid) {
+        final UserEntity owner = new UserEntity();
+        owner.setUuid(ownerUuid);
+        final QuestionEntity question = new QuestionEntity();
+        question.setUuid(uuid);
+        question.setUserEntity(owner);
+        return question;
+    }
+
+    private Map<?, ?> questionAnswersVersions() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(listingVersions, "questionAnswersVersions");
+    }
+
+    //This test case passes when only the most recently used listings keep a version, and an evicted listing gets the latest evicted version, never an older one.
+    @Test
+    public void evictsLeastRecentlyUsedListings() {
+        final String neverChanged = listingVersions.questionAnswersETag("q0");
+        listingVersions.questionChanged(question("q1", "u1"));
+        final String q1 = listingVersions.questionAnswersETag("q1");
+        listingVersions.questionChanged(question("q2", "u1"));
+        listingVersions.questionChanged(question("q3", "u1"));
+
+        assertEquals(2, questionAnswersVersions().size());
+        assertFalse(questionAnswersVersions().containsKey("q1"));
+        // q1 was evicted with the latest evicted version, so it keeps its ETag
+        assertEquals(q1, listingVersions.questionAnswersETag("q1"));
+        assertEquals(q1, listingVersions.questionAnswersETag("q0"));
+        assertNotEquals(neverChanged, listingVersions.questionAnswersETag("q0"));
+    }
+
+    //This test case passes when deleting a question drops the version of its answer listing and changes its ETag.
+    @Test
+    public void dropsDeletedQuestions() {
+        listingVersions.questionChanged(question("q1", "u1"));
+        final String answers = listingVersions.questionAnswersETag("q1");
+        final String questions = listingVersions.userQuestionsETag("u1");
+
+        listingVersions.questionDeleted(question("q1", "u1"));
+
+        assertTrue(questionAnswersVersions().isEmpty());
+        assertNotEquals(answers, listingVersions.questionAnswersETag("q1"));
+        assertNotEquals(questions, listingVersions.userQuestionsETag("u1"));
+    }
+
+    //This test case passes when deleting a user drops the version of their question listing and changes the ETag of every listing.
+    @Test
+    public void dropsDeletedUsers() {
+        listingVersions.questionChanged(question("q1", "u1"));
+        final String all = listingVersions.allQuestionsETag();
+        final String answers = listingVersions.questionAnswersETag("q1");
+        final String questions = listingVersions.userQuestionsETag("u1");
+
+        listingVersions.userDeleted("u1");
+
+        assertFalse(((Map<?, ?>) ReflectionTestUtils.getField(listingVersions, "userQuestionsVersions")).containsKey("u1"));
+        assertNotEquals(all, listingVersions.allQuestionsETag());
+        assertNotEquals(answers, listingVersions.questionAnswersETag("q1"));
+        assertNotEquals(questions, listingVersions.userQuestionsETag("u1"));
+    }
+}
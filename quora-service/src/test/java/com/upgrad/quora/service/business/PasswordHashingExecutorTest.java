@@ -0,0 +1,93 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.ServiceOverloadedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PasswordHashingExecutorTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable()).thenReturn(registry);
+        passwordHashingExecutor = new PasswordHashingExecutor();
+        ReflectionTestUtils.setField(passwordHashingExecutor, "poolSize", 1);
+        ReflectionTestUtils.setField(passwordHashingExecutor, "queueCapacity", 1);
+        ReflectionTestUtils.setField(passwordHashingExecutor, "iterations", 1000);
+        ReflectionTestUtils.setField(passwordHashingExecutor, "timeoutMillis", 5000L);
+        ReflectionTestUtils.setField(passwordHashingExecutor, "retryAfterSeconds", 1L);
+        ReflectionTestUtils.setField(passwordHashingExecutor, "meterRegistry", meterRegistry);
+        passwordHashingExecutor.init();
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        passwordHashingExecutor.shutdown();
+    }
+
+    //This test case passes when every hash is timed and the hashed password matches the one hashed again with the stored salt.
+    @Test
+    public void timesHashes() throws Exception {
+        final String[] encrypted = passwordHashingExecutor.encrypt("password");
+        assertEquals(encrypted[1], passwordHashingExecutor.encrypt("password", encrypted[0]));
+
+        assertEquals(2, registry.get(PasswordHashingExecutor.HASH_TIMER).timer().count());
+        assertTrue(registry.get(PasswordHashingExecutor.HASH_TIMER).timer().totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    //This test case passes when the gauges show the busy thread and the queued hash of a saturated pool, and the rejected hash is counted.
+    @Test
+    public void publishesSaturation() throws Exception {
+        final ThreadPoolExecutor executor =
+                (ThreadPoolExecutor) ReflectionTestUtils.getField(passwordHashingExecutor, "executor");
+        final CountDownLatch started = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            awaitRelease();
+        });
+        executor.execute(this::awaitRelease);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1.0, registry.get(PasswordHashingExecutor.ACTIVE_GAUGE).gauge().value(), 0);
+        assertEquals(1.0, registry.get(PasswordHashingExecutor.QUEUE_GAUGE).gauge().value(), 0);
+        try {
+            passwordHashingExecutor.encrypt("password");
+            fail("Expected the hashing pool to be saturated");
+        } catch (ServiceOverloadedException e) {
+            assertEquals("SVC-001", e.getCode());
+        }
+        assertEquals(1.0, registry.get(PasswordHashingExecutor.REJECTED_COUNTER).functionCounter().count(), 0);
+        assertEquals(0, registry.get(PasswordHashingExecutor.HASH_TIMER).timer().count());
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
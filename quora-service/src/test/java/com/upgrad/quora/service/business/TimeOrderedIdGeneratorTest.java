@@ -0,0 +1,74 @@
+package com.upgrad.quora.service.business;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeOrderedIdGeneratorTest {
+
+    private final TimeOrderedIdGenerator idGenerator = new TimeOrderedIdGenerator();
+
+    @Before
+    public void setUp() {
+        // Forget the last id this thread generated in another test
+        ((ThreadLocal<?>) ReflectionTestUtils.getField(TimeOrderedIdGenerator.class, "SEQUENCE")).remove();
+    }
+
+    private static long millis(final String id) {
+        return UUID.fromString(id).getMostSignificantBits() >>> 16;
+    }
+
+    //This test case passes when the ids are version 7 UUIDs of the IETF variant holding the time they were generated at.
+    @Test
+    public void versionAndVariant() {
+        final long before = System.currentTimeMillis();
+        final String id = idGenerator.nextId();
+        final UUID uuid = UUID.fromString(id);
+
+        assertEquals(36, id.length());
+        assertEquals(7, uuid.version());
+        assertEquals('7', id.charAt(14));
+        assertEquals(2, uuid.variant());
+        assertTrue("89ab".indexOf(id.charAt(19)) >= 0);
+        assertTrue(millis(id) >= before);
+        assertTrue(millis(id) <= System.currentTimeMillis());
+    }
+
+    //This test case passes when the ids of a thread generated within one millisecond are strictly increasing, also once the sequence runs out and the time is carried forward.
+    @Test
+    public void increasesWithinOneMillisecond() {
+        final long now = System.currentTimeMillis();
+        String previous = idGenerator.nextId(now);
+        assertEquals(now, millis(previous));
+        for (int i = 0; i < 5000; i++) {
+            final String id = idGenerator.nextId(now);
+            assertTrue(previous + " < " + id, id.compareTo(previous) > 0);
+            previous = id;
+        }
+        // At most 2048 + 4096 ids fit in two milliseconds
+        assertTrue(millis(previous) == now + 1 || millis(previous) == now + 2);
+    }
+
+    //This test case passes when the ids keep increasing, at the time of the latest id, while the clock goes back.
+    @Test
+    public void increasesWhileClockGoesBack() {
+        final long now = System.currentTimeMillis();
+        final String first = idGenerator.nextId(now);
+        final String second = idGenerator.nextId(now - 1000);
+        final String third = idGenerator.nextId(now - 1);
+
+        assertTrue(second.compareTo(first) > 0);
+        assertTrue(third.compareTo(second) > 0);
+        assertEquals(now, millis(second));
+        assertEquals(now, millis(third));
+
+        final String caughtUp = idGenerator.nextId(now + 1);
+        assertTrue(caughtUp.compareTo(third) > 0);
+        assertEquals(now + 1, millis(caughtUp));
+    }
+}
@@ -0,0 +1,167 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.proxy.HibernateProxy;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserSessionCacheTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private UserSessionCache userSessionCache;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final ObjectProvider<MeterRegistry> meterRegistry = mock(ObjectProvider.class);
+        when(meterRegistry.getIfAvailable()).thenReturn(registry);
+        userSessionCache = new UserSessionCache();
+        ReflectionTestUtils.setField(userSessionCache, "maxSize", 2);
+        ReflectionTestUtils.setField(userSessionCache, "ttlSeconds", 300L);
+        ReflectionTestUtils.setField(userSessionCache, "meterRegistry", meterRegistry);
+        userSessionCache.init();
+    }
+
+    private static UserAuthEntity session(final String accessToken, final Integer userId, final ZonedDateTime expiresAt) {
+        final UserEntity user = new UserEntity();
+        user.setId(userId);
+        user.setUuid("user-" + userId);
+        user.setRole("nonadmin");
+        user.setFirstName("first name of " + userId);
+        final UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setId(userId * 10);
+        userAuthEntity.setUuid("session-" + accessToken);
+        userAuthEntity.setAccessToken(accessToken);
+        userAuthEntity.setUserEntity(user);
+        userAuthEntity.setLoginAt(ZonedDateTime.now());
+        userAuthEntity.setExpiresAt(expiresAt);
+        return userAuthEntity;
+    }
+
+    private double meter(final String name, final String result) {
+        return result == null
+                ? registry.get(name).tag("cache", UserSessionCache.CACHE_NAME).functionCounter().count()
+                : registry.get(name).tag("cache", UserSessionCache.CACHE_NAME).tag("result", result).functionCounter().count();
+    }
+
+    //This test case passes when hits, misses, evictions and the size of the cache are published as meters, and the clock evicts the session that was not read since it was cached.
+    @Test
+    @SuppressWarnings("unchecked")
+    public void publishesMeters() {
+        final ZonedDateTime expiresAt = ZonedDateTime.now().plusHours(1);
+        assertNull(userSessionCache.get("token1"));
+        userSessionCache.put(session("token1", 1, expiresAt), userSessionCache.currentEpoch());
+        userSessionCache.get("token1");
+        userSessionCache.get("token1");
+        userSessionCache.put(session("token2", 2, expiresAt), userSessionCache.currentEpoch());
+        // All the sessions start as read, so the first turn of the hand clears them all before it evicts one
+        userSessionCache.put(session("token3", 3, expiresAt), userSessionCache.currentEpoch());
+        assertEquals(1.0, meter("cache.evictions", null), 0);
+        final List<String> cached = new ArrayList<>(
+                ((Map<String, ?>) ReflectionTestUtils.getField(userSessionCache, "sessions")).keySet());
+        userSessionCache.get(cached.get(0));
+        userSessionCache.put(session("token4", 4, expiresAt), userSessionCache.currentEpoch());
+
+        assertEquals(3.0, meter("cache.gets", "hit"), 0);
+        assertEquals(1.0, meter("cache.gets", "miss"), 0);
+        assertEquals(2.0, meter("cache.evictions", null), 0);
+        assertEquals(2.0, registry.get("cache.size").tag("cache", UserSessionCache.CACHE_NAME).gauge().value(), 0);
+        // The session read since the hand passed it is kept, the other one is evicted
+        assertNotNull(userSessionCache.get(cached.get(0)));
+        assertNull(userSessionCache.get(cached.get(1)));
+    }
+
+    //This test case passes when the invalidation of a user removes all their sessions and none of the other users.
+    @Test
+    public void invalidatesSessionsOfUser() {
+        ReflectionTestUtils.setField(userSessionCache, "maxSize", 10);
+        final ZonedDateTime expiresAt = ZonedDateTime.now().plusHours(1);
+        userSessionCache.put(session("token1", 1, expiresAt), userSessionCache.currentEpoch());
+        userSessionCache.put(session("token2", 1, expiresAt), userSessionCache.currentEpoch());
+        userSessionCache.put(session("token3", 2, expiresAt), userSessionCache.currentEpoch());
+
+        userSessionCache.invalidateUser(1);
+
+        assertNull(userSessionCache.get("token1"));
+        assertNull(userSessionCache.get("token2"));
+        assertNotNull(userSessionCache.get("token3"));
+        assertEquals(1, userSessionCache.getSize());
+        userSessionCache.invalidate("token3");
+        assertEquals(0, userSessionCache.getSize());
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(userSessionCache, "tokensByUser")).isEmpty());
+    }
+
+    //This test case passes when expired tokens are not cached and a session read before an invalidation is not cached either.
+    @Test
+    public void skipsExpiredAndInvalidatedSessions() {
+        userSessionCache.put(session("expired", 1, ZonedDateTime.now().minusSeconds(1)), userSessionCache.currentEpoch());
+        assertNull(userSessionCache.get("expired"));
+
+        final long readEpoch = userSessionCache.currentEpoch();
+        userSessionCache.invalidate("token1");
+        userSessionCache.put(session("token1", 1, ZonedDateTime.now().plusHours(1)), readEpoch);
+        assertNull(userSessionCache.get("token1"));
+
+        userSessionCache.put(session("token1", 1, ZonedDateTime.now().plusHours(1)), userSessionCache.currentEpoch());
+        userSessionCache.invalidateUser(1);
+        assertNull(userSessionCache.get("token1"));
+    }
+
+    //This test case passes when a cached session is served without a query and its user carries the id, uuid and role as plain fields rather than a lazy proxy.
+    @Test
+    @SuppressWarnings("unchecked")
+    public void servesCachedSessionWithoutProxy() {
+        final EntityManager entityManager = mock(EntityManager.class);
+        final TypedQuery<UserAuthEntity> query = mock(TypedQuery.class);
+        when(entityManager.createNamedQuery("userAuthByAccessToken", UserAuthEntity.class)).thenReturn(query);
+        when(query.setParameter(eq("accessToken"), anyString())).thenReturn(query);
+        when(query.getSingleResult()).thenReturn(session("token1", 1, ZonedDateTime.now().plusHours(1)));
+        final UserAuthDao userAuthDao = new UserAuthDao();
+        ReflectionTestUtils.setField(userAuthDao, "entityManager", entityManager);
+        ReflectionTestUtils.setField(userAuthDao, "userSessionCache", userSessionCache);
+
+        final UserAuthEntity loaded = userAuthDao.getUserAuthByToken("token1");
+        final UserAuthEntity cached = userAuthDao.getUserAuthByToken("token1");
+
+        verify(query, times(1)).getSingleResult();
+        verify(entityManager, never()).getReference(any(), any());
+        assertEquals(loaded.getId(), cached.getId());
+        assertEquals(loaded.getUuid(), cached.getUuid());
+        assertEquals(loaded.getExpiresAt(), cached.getExpiresAt());
+        final UserEntity user = cached.getUserEntity();
+        assertFalse(user instanceof HibernateProxy);
+        assertEquals(Integer.valueOf(1), user.getId());
+        assertEquals("user-1", user.getUuid());
+        assertEquals("nonadmin", user.getRole());
+        assertNull(user.getFirstName());
+        assertSame(cached.getUserEntity(), cached.getUser());
+    }
+}
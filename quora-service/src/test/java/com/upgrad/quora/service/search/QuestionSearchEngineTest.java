@@ -0,0 +1,194 @@
+package com.upgrad.quora.service.search;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.model.QuestionSearchHit;
+import com.upgrad.quora.service.model.QuestionSummary;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class QuestionSearchEngineTest {
+
+    private QuestionSearchEngine engine;
+
+    private QuestionDao questionDao;
+
+    private AnswerDao answerDao;
+
+    @Before
+    public void setUp() {
+        engine = new QuestionSearchEngine();
+        questionDao = mock(QuestionDao.class);
+        answerDao = mock(AnswerDao.class);
+        ReflectionTestUtils.setField(engine, "backend", QuestionSearchEngine.MEMORY_BACKEND);
+        ReflectionTestUtils.setField(engine, "maxPrefixExpansions", 50);
+        ReflectionTestUtils.setField(engine, "questionDao", questionDao);
+        ReflectionTestUtils.setField(engine, "answerDao", answerDao);
+        ReflectionTestUtils.setField(engine, "transactionManager", mock(PlatformTransactionManager.class));
+    }
+
+    private List<String> search(final String query) {
+        return uuids(engine.search(query, 0, 10));
+    }
+
+    private static List<String> uuids(final List<QuestionSearchHit> hits) {
+        final List<String> uuids = new ArrayList<>();
+        for (QuestionSearchHit hit : hits) {
+            uuids.add(hit.getUuid());
+        }
+        return uuids;
+    }
+
+    //This test case passes when the questions are ranked by BM25, a frequent term in a short question first and an answer match after the question matches.
+    @Test
+    public void ranksByBm25() {
+        engine.questionSaved(1, "long", "java python ruby go rust kotlin scala");
+        engine.questionSaved(2, "short", "java java java streams");
+        engine.questionSaved(3, "other", "python");
+        engine.questionSaved(4, "answered", "cooking");
+        engine.answerSaved(40, 4, "java");
+
+        final List<QuestionSearchHit> hits = engine.search("java", 0, 10);
+        assertEquals(Arrays.asList("short", "long", "answered"), uuids(hits));
+        assertTrue(hits.get(0).getRank() > hits.get(1).getRank());
+        assertTrue(hits.get(1).getRank() > hits.get(2).getRank());
+    }
+
+    //This test case passes when a query word ending with * matches every word it is a prefix of, and only those.
+    @Test
+    public void matchesPrefixes() {
+        engine.questionSaved(1, "programming", "programming languages");
+        engine.questionSaved(2, "program", "a program");
+        engine.questionSaved(3, "progress", "progress report");
+        engine.questionSaved(4, "project", "project plan");
+
+        assertEquals(3, search("progr*").size());
+        assertEquals(Arrays.asList("program", "programming"), sorted(search("program*")));
+        assertEquals(Collections.singletonList("program"), search("program"));
+        assertEquals("<b>programming</b> languages", engine.search("programming*", 0, 1).get(0).getSnippet());
+    }
+
+    //This test case passes when only the best offset + limit questions are returned, in the same order as the full ranking.
+    @Test
+    public void returnsTopK() {
+        for (int id = 1; id <= 10; id++) {
+            final StringBuilder content = new StringBuilder();
+            for (int i = 0; i < id; i++) {
+                content.append("word ");
+            }
+            engine.questionSaved(id, "q" + id, content.append("filler filler filler filler filler filler filler filler filler filler").toString());
+        }
+
+        final List<String> all = search("word");
+        assertEquals(10, all.size());
+        assertEquals("q10", all.get(0));
+        assertEquals("q1", all.get(9));
+        assertEquals(all.subList(0, 3), uuids(engine.search("word", 0, 3)));
+        assertEquals(all.subList(2, 5), uuids(engine.search("word", 2, 3)));
+        assertEquals(all.subList(8, 10), uuids(engine.search("word", 8, 5)));
+    }
+
+    //This test case passes when edited and deleted questions and answers are searched by their current content only.
+    @Test
+    public void updatesAndDeletes() {
+        engine.questionSaved(1, "q1", "first question");
+        engine.answerSaved(10, 1, "apples");
+        engine.answerSaved(11, 1, "bananas");
+
+        engine.answerSaved(10, 1, "cherries");
+        assertEquals(Collections.emptyList(), search("apples"));
+        assertEquals(Collections.singletonList("q1"), search("cherries"));
+        assertEquals(Collections.singletonList("q1"), search("bananas"));
+
+        engine.answerDeleted(11);
+        assertEquals(Collections.emptyList(), search("bananas"));
+        assertEquals(Collections.singletonList("q1"), search("cherries"));
+
+        engine.questionSaved(1, "q1", "edited question");
+        assertEquals(Collections.emptyList(), search("first"));
+        assertEquals(Collections.singletonList("q1"), search("edited"));
+
+        engine.questionDeleted(1);
+        assertEquals(Collections.emptyList(), search("edited"));
+        assertEquals(Collections.emptyList(), search("cherries"));
+    }
+
+    //This test case passes when deleting a user drops their questions, with all the answers to them, and their answers to the questions of other users.
+    @Test
+    public void dropsDocumentsOfDeletedUser() {
+        engine.questionSaved(1, "mine", "deleted user question");
+        engine.answerSaved(10, 1, "reply from someone else");
+        engine.questionSaved(2, "theirs", "kept question");
+        engine.answerSaved(20, 2, "deleted user reply");
+        engine.answerSaved(21, 2, "kept reply");
+        when(questionDao.getQuestionIdsByUser(7)).thenReturn(Collections.singletonList(1));
+        when(answerDao.getAnswerIdsByUser(7)).thenReturn(Collections.singletonList(20));
+
+        engine.userDeleted(7);
+
+        assertEquals(Collections.emptyList(), search("deleted"));
+        assertEquals(Collections.emptyList(), search("someone"));
+        assertEquals(Collections.singletonList("theirs"), search("reply"));
+        assertEquals(Collections.singletonList("theirs"), search("kept"));
+    }
+
+    //This test case passes when the questions created, edited and deleted while the index is being loaded are searched by their current content once it is swapped in.
+    @Test
+    @SuppressWarnings("unchecked")
+    public void replaysChangesMadeDuringRebuild() {
+        engine.questionSaved(3, "deleted", "deleted question");
+        doAnswer(invocation -> {
+            final Consumer<QuestionSummary> consumer = invocation.getArgument(1);
+            consumer.accept(new QuestionSummary(1, "edited", "old question", null, 0, null));
+            consumer.accept(new QuestionSummary(3, "deleted", "deleted question", null, 0, null));
+            // Committed after the load has read these questions
+            engine.questionSaved(1, "edited", "new question");
+            engine.questionSaved(2, "created", "created question");
+            engine.questionDeleted(3);
+            return null;
+        }).when(questionDao).forEachQuestion(anyInt(), any(Consumer.class));
+
+        engine.rebuild();
+
+        assertEquals(Collections.emptyList(), search("old"));
+        assertEquals(Collections.singletonList("edited"), search("new"));
+        assertEquals(Collections.singletonList("created"), search("created"));
+        assertEquals(Collections.emptyList(), search("deleted"));
+        // Changes made after the swap are not recorded for a replay any more
+        engine.questionDeleted(2);
+        assertEquals(Collections.emptyList(), search("created"));
+        assertNull(ReflectionTestUtils.getField(engine, "pendingChanges"));
+    }
+
+    //This test case passes when the snippet HTML-escapes the content and only wraps the matched words in <b></b>.
+    @Test
+    public void escapesSnippet() {
+        engine.questionSaved(1, "q1", "Is <script>alert('java')</script> & \u0002more");
+
+        assertEquals("Is &lt;script&gt;alert(&#39;<b>java</b>&#39;)&lt;/script&gt; &amp; more",
+                engine.search("java", 0, 1).get(0).getSnippet());
+    }
+
+    private static List<String> sorted(final List<String> values) {
+        final List<String> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        return sorted;
+    }
+}